@@ -0,0 +1,100 @@
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Checks the autofill rules of {@link Game} on positions reached by random legal moves from a fixed
+ * corpus of seeded deals:
+ * <ul>
+ * <li>a sideboard card that cannot be completed yet, such as a 3 while its color is completed up
+ * to 1, is never given by {@link Game#autoFill()}.
+ * <li>a rose in the sideboard is never given, as {@link Game#move(int, int, int, int)} does not
+ * move it out.
+ * <li>every card given by {@link Game#autoFill()} can be moved to the completed slots, and every
+ * move made by {@link Game#settle(int[])} is allowed when it is made.
+ * </ul>
+ * Usage: <code>java AutoFillCheck [-deals n]</code><br>
+ * Exits with a status of 1 if any check fails, or if no sideboard card that cannot be completed
+ * was found, so that the first check is never passed without being made.
+ */
+public class AutoFillCheck {
+
+	private static final long CORPUS_SEED = 0x5EED;
+
+	/**
+	 * The most random moves made in each deal.
+	 */
+	private static final int MAX_MOVES = 200;
+
+	public static void main(final String[] args) {
+		int deals = 2000;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-deals")) {
+				deals = Integer.parseInt(args[++i]);
+			} else {
+				System.err.println("Unknown argument: " + args[i]);
+				System.exit(2);
+			}
+		}
+
+		final Random random = new Random(CORPUS_SEED);
+		final int[] moves = new int[Game.MOVE_BUFFER_SIZE];
+		final int[] settled = new int[Game.SETTLE_BUFFER_SIZE];
+		int positions = 0, uncompletable = 0, failures = 0;
+
+		for (int d = 0; d < deals; d++) {
+			final Game game = new Game(random.nextLong());
+			for (int m = 0; m < MAX_MOVES; m++) {
+				positions++;
+				final Set<Integer> autoFill = game.autoFill();
+
+				for (int slot = 0; slot < 3; slot++) {
+					final int card = game.sideboardCard(slot);
+					final boolean rose = card == Game.ROSE;
+					// Dragons are never autofilled, and other cards may be if they can be completed
+					if (card < 0 || !rose && (card & Game.DRAGON_MOD) != 0) continue;
+					if (!rose && game.highestComplete(card >> 4 & 0b11) == (card & 0b1111) - 1) continue;
+
+					if (!rose) uncompletable++;
+					if (autoFill.contains(slot | 0b1000)) {
+						failures++;
+						System.out.println("Sideboard slot " + slot + " given by autoFill():\n" + game.asString());
+					}
+				}
+
+				// A cascade may complete a sideboard card once the card below it has been, but only
+				// then, so each of its moves must be allowed when it is made
+				final int n = new Game(game).settle(settled);
+				final Game replay = new Game(game);
+				for (int i = 0; i < n * Game.MOVE_SIZE; i += Game.MOVE_SIZE) {
+					if (!Solution.apply(replay, settled, i)) {
+						failures++;
+						System.out.println("Move " + i / Game.MOVE_SIZE + " made by settle() is not allowed:\n" + game.asString());
+						break;
+					}
+				}
+
+				for (final int slot : autoFill) {
+					final Game copy = new Game(game);
+					if (!copy.move(slot % 8, slot >= 8 ? -1 : copy.cardsIn(slot) - 1, 0, -2)) {
+						failures++;
+						System.out.println("Slot " + slot + " given by autoFill() cannot be completed:\n" + game.asString());
+					}
+				}
+
+				final int count = game.generateMoves(moves);
+				if (count == 0) break;
+
+				final int offset = random.nextInt(count) * Game.MOVE_SIZE;
+				if (moves[offset + 1] == Game.COLLECT_DRAGONS) {
+					game.collectDragons(game.canCollectDragons(moves[offset]));
+				} else {
+					game.move(moves[offset], moves[offset + 1], moves[offset + 2], moves[offset + 3]);
+				}
+			}
+		}
+
+		System.out.println(positions + " positions, " + uncompletable + " sideboard cards that could not be completed, " + failures + " failures");
+		if (failures > 0 || uncompletable == 0) System.exit(1);
+	}
+
+}
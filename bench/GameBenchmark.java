@@ -0,0 +1,310 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Measures the throughput and allocation rate of the rules engine in {@link Game}, on a fixed corpus
+ * of seeded deals. Each deal is benchmarked as dealt, halfway through a solution, and a few moves
+ * before it is won, so that every method is measured on early, mid-game and near-won positions.<br>
+ * Usage: <code>java GameBenchmark [-deals n] [-warmup n] [-iterations n] [-time ms]
+ * [-save file] [-baseline file] [-tolerance percent]</code><br>
+ * <code>-save</code> writes the results to a file, and <code>-baseline</code> compares the results
+ * with a saved file, exiting with a status of 1 if any benchmark is slower by more than the
+ * tolerance, or allocates more, than it did in the baseline.
+ */
+public class GameBenchmark {
+
+	private static final long CORPUS_SEED = 0x5EED;
+
+	/**
+	 * The number of moves before the end of a solution that near-won positions are taken from.
+	 */
+	private static final int NEAR_WON_MOVES = 5;
+
+	private interface Benchmark {
+		/**
+		 * Runs the benchmark once on every position.
+		 * @return a value computed from the results, so that the work cannot be optimized away
+		 */
+		long run(Game[] positions, int[][] moves);
+	}
+
+	private static final Map<String, Benchmark> BENCHMARKS = new LinkedHashMap<>();
+	private static final int[] MOVE_BUFFER = new int[Game.MOVE_BUFFER_SIZE];
+
+	static {
+		BENCHMARKS.put("move+undo", (positions, moves) -> {
+			long sink = 0;
+			for (int p = 0; p < positions.length; p++) {
+				final Game game = positions[p];
+				final int[] list = moves[p];
+				for (int m = 0; m < list.length; m += Game.MOVE_SIZE) {
+					if (Solution.apply(game, list, m)) {
+						sink += game.zobristHash();
+						game.undo();
+					}
+				}
+			}
+			return sink;
+		});
+		BENCHMARKS.put("generateMoves", (positions, moves) -> {
+			long sink = 0;
+			for (final Game game : positions) {
+				sink += game.generateMoves(MOVE_BUFFER);
+			}
+			return sink;
+		});
+		BENCHMARKS.put("canDrag", (positions, moves) -> {
+			long sink = 0;
+			for (final Game game : positions) {
+				for (int slot = 0; slot < 8; slot++) {
+					for (int index = game.cardsIn(slot) - 1; index >= 0; index--) {
+						if (game.canDrag(slot, index)) sink++;
+					}
+				}
+			}
+			return sink;
+		});
+		BENCHMARKS.put("autoFill", (positions, moves) -> {
+			long sink = 0;
+			for (final Game game : positions) {
+				sink += game.autoFill().size();
+			}
+			return sink;
+		});
+		BENCHMARKS.put("canCollectDragons", (positions, moves) -> {
+			long sink = 0;
+			for (final Game game : positions) {
+				for (int color = 0; color < 3; color++) {
+					if (game.canCollectDragons(color) != null) sink++;
+				}
+			}
+			return sink;
+		});
+		BENCHMARKS.put("isWon", (positions, moves) -> {
+			long sink = 0;
+			for (final Game game : positions) {
+				if (game.isWon()) sink++;
+			}
+			return sink;
+		});
+	}
+
+	/**
+	 * Written to at the end of every iteration, so that the results of the benchmarks are used.
+	 */
+	public static volatile long sink;
+
+	public static void main(final String[] args) throws IOException {
+		int deals = 64;
+		int warmup = 3;
+		int iterations = 5;
+		long time = 1000;
+		String save = null, baseline = null;
+		double tolerance = 10;
+
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+				case "-deals":
+					deals = Integer.parseInt(args[++i]);
+					break;
+				case "-warmup":
+					warmup = Integer.parseInt(args[++i]);
+					break;
+				case "-iterations":
+					iterations = Integer.parseInt(args[++i]);
+					break;
+				case "-time":
+					time = Long.parseLong(args[++i]);
+					break;
+				case "-save":
+					save = args[++i];
+					break;
+				case "-baseline":
+					baseline = args[++i];
+					break;
+				case "-tolerance":
+					tolerance = Double.parseDouble(args[++i]);
+					break;
+				default:
+					System.err.println("Unknown option: " + args[i]);
+					System.exit(2);
+			}
+		}
+
+		final Game[] positions = corpus(deals);
+		final int[][] moves = new int[positions.length][];
+		final int[] buffer = new int[Game.MOVE_BUFFER_SIZE];
+		for (int p = 0; p < positions.length; p++) {
+			moves[p] = Arrays.copyOf(buffer, positions[p].generateMoves(buffer) * Game.MOVE_SIZE);
+		}
+
+		System.out.printf(Locale.ROOT, "%d positions from %d deals%n", positions.length, deals);
+		System.out.printf(Locale.ROOT, "%-20s %16s %10s %12s%n", "Benchmark", "ops/s", "error", "B/op");
+
+		final Map<String, double[]> results = new HashMap<>();
+		for (final Map.Entry<String, Benchmark> entry : BENCHMARKS.entrySet()) {
+			final Benchmark benchmark = entry.getValue();
+			final long opsPerPass = operations(entry.getKey(), positions, moves);
+
+			for (int i = 0; i < warmup; i++) {
+				measure(benchmark, positions, moves, opsPerPass, time);
+			}
+
+			final double[] throughput = new double[iterations];
+			double bytes = 0;
+			for (int i = 0; i < iterations; i++) {
+				final double[] result = measure(benchmark, positions, moves, opsPerPass, time);
+				throughput[i] = result[0];
+				bytes += result[1] / iterations;
+			}
+
+			double mean = 0;
+			for (final double t : throughput) {
+				mean += t / iterations;
+			}
+			double variance = 0;
+			for (final double t : throughput) {
+				variance += (t - mean) * (t - mean) / Math.max(iterations - 1, 1);
+			}
+
+			System.out.printf(Locale.ROOT, "%-20s %16.0f %9.1f%% %12.2f%n", entry.getKey(), mean, 100 * Math.sqrt(variance) / mean, bytes);
+			results.put(entry.getKey(), new double[] {mean, bytes});
+		}
+
+		if (save != null) {
+			try (PrintWriter out = new PrintWriter(save)) {
+				for (final String name : BENCHMARKS.keySet()) {
+					final double[] result = results.get(name);
+					out.printf(Locale.ROOT, "%s %f %f%n", name, result[0], result[1]);
+				}
+			}
+		}
+
+		if (baseline != null && !compare(baseline, results, tolerance)) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Builds the positions to benchmark: each seeded deal as dealt, halfway through a solution and
+	 * {@value #NEAR_WON_MOVES} moves before it is won. Deals that cannot be solved within the node
+	 * limit only contribute the dealt position. The later positions depend on the solutions the
+	 * solver finds, so baselines should be compared with results from the same solver.
+	 */
+	private static Game[] corpus(final int deals) {
+		final List<Game> positions = new ArrayList<>();
+		// Only limit the search by nodes, so that the corpus does not depend on the speed of the machine
+		final Solver solver = new Solver(200_000, 3_600_000);
+		for (int i = 0; i < deals; i++) {
+			final Game deal = new Game(CORPUS_SEED + i);
+			positions.add(deal);
+
+			final Solution solution = solver.findSolution(deal);
+			if (!solution.isSolved()) continue;
+
+			final Game game = new Game(deal);
+			final int length = solution.length();
+			for (int m = 0; m < length - NEAR_WON_MOVES; m++) {
+				solution.apply(game, m);
+				if (m == length / 2) positions.add(new Game(game));
+			}
+			positions.add(new Game(game));
+		}
+		return positions.toArray(new Game[positions.size()]);
+	}
+
+	/**
+	 * @return the number of operations in one run of the benchmark with the given name
+	 */
+	private static long operations(final String name, final Game[] positions, final int[][] moves) {
+		long ops = 0;
+		for (int p = 0; p < positions.length; p++) {
+			switch (name) {
+				case "move+undo":
+					ops += moves[p].length / Game.MOVE_SIZE;
+					break;
+				case "canDrag":
+					for (int slot = 0; slot < 8; slot++) {
+						ops += positions[p].cardsIn(slot);
+					}
+					break;
+				case "canCollectDragons":
+					ops += 3;
+					break;
+				default:
+					ops++;
+			}
+		}
+		return ops;
+	}
+
+	/**
+	 * Runs the benchmark repeatedly for the given time.
+	 * @return the throughput in operations per second, and the bytes allocated per operation
+	 */
+	private static double[] measure(final Benchmark benchmark, final Game[] positions, final int[][] moves, final long opsPerPass, final long time) {
+		final ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+		final long thread = Thread.currentThread().getId();
+
+		long result = 0;
+		long passes = 0;
+		final long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+		final long start = System.nanoTime();
+		final long end = start + time * 1_000_000;
+		long now;
+		do {
+			result += benchmark.run(positions, moves);
+			passes++;
+		} while ((now = System.nanoTime()) < end);
+		final long allocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+
+		sink = result;
+		final double ops = (double) passes * opsPerPass;
+		return new double[] {ops * 1e9 / (now - start), allocated / ops};
+	}
+
+	/**
+	 * Compares the results with a file written by <code>-save</code>.
+	 * @return whether or not every benchmark is within the tolerance of the baseline
+	 */
+	private static boolean compare(final String file, final Map<String, double[]> results, final double tolerance) throws IOException {
+		boolean passed = true;
+		try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+			String line;
+			while ((line = in.readLine()) != null) {
+				final String[] parts = line.trim().split("\\s+");
+				if (parts.length != 3 || !results.containsKey(parts[0])) continue;
+
+				final double[] result = results.get(parts[0]);
+				final double throughput = Double.parseDouble(parts[1]);
+				final double bytes = Double.parseDouble(parts[2]);
+
+				final double change = 100 * (result[0] - throughput) / throughput;
+				if (change < -tolerance) {
+					System.out.printf(Locale.ROOT, "REGRESSION %s: %.1f%% slower than baseline%n", parts[0], -change);
+					passed = false;
+				}
+
+				// Allow for the rounding of allocations that are shared between many operations
+				if (result[1] > bytes + 0.5) {
+					System.out.printf(Locale.ROOT, "REGRESSION %s: allocates %.2f B/op, baseline %.2f B/op%n", parts[0], result[1], bytes);
+					passed = false;
+				}
+			}
+		}
+		return passed;
+	}
+
+}
@@ -0,0 +1,197 @@
+import java.util.Arrays;
+
+/**
+ * The open-addressed hash tables shared by the primitive bidirectional maps. Entries are stored
+ * densely in arrays kept by the subclass, at indexes 0 to {@link #size} - 1, and two tables of
+ * entry indexes (plus one, so that 0 marks an empty slot) find them by key and by value. Both
+ * tables use linear probing, and are never more than half full.<br>
+ * Removing an entry moves the last entry into its place, and clears the slots it held by shifting
+ * back the entries that follow them, so that no tombstones are left behind and lookups stay short
+ * however many entries are removed.
+ */
+abstract class AbstractBidirectionalMap {
+
+	private static final int MIN_CAPACITY = 4;
+
+	/**
+	 * The index plus one of the entry stored in each slot of the key and value tables, or 0 if the
+	 * slot is empty.
+	 */
+	protected int[] keyTable, valueTable;
+	protected int mask;
+	protected int size;
+
+	protected AbstractBidirectionalMap(final int initialCapacity) {
+		if (initialCapacity < 0 || initialCapacity > 1 << 29) throw new IllegalArgumentException("Capacity (" + initialCapacity + ") out of range");
+
+		final int capacity = Math.max(Integer.highestOneBit(Math.max(initialCapacity, 1) - 1) << 1, MIN_CAPACITY);
+		keyTable = new int[capacity * 2];
+		valueTable = new int[capacity * 2];
+		mask = capacity * 2 - 1;
+	}
+
+	/**
+	 * @return the hash of the key of the given entry
+	 */
+	protected abstract int keyHash(int entry);
+
+	/**
+	 * @return the hash of the value of the given entry
+	 */
+	protected abstract int valueHash(int entry);
+
+	/**
+	 * Copies the key and value of an entry to another index.
+	 */
+	protected abstract void moveEntry(int from, int to);
+
+	/**
+	 * Clears the key and value of an entry, so that no objects are kept alive by it.
+	 */
+	protected abstract void clearEntry(int entry);
+
+	/**
+	 * Resizes the arrays holding the keys and values to the given number of entries.
+	 */
+	protected abstract void resizeEntries(int capacity);
+
+	/**
+	 * Spreads the bits of a hash code, so that hash codes differing only in their high bits do not
+	 * collide in the tables.
+	 */
+	protected static int mix(final int hash) {
+		final int h = hash * 0x9E3779B9;
+		return h ^ h >>> 16;
+	}
+
+	/**
+	 * @return the number of entries in the map
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of entries the map can hold before it grows
+	 */
+	public int capacity() {
+		return keyTable.length / 2;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes every entry from the map. The map keeps its capacity.
+	 */
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			clearEntry(i);
+		}
+		Arrays.fill(keyTable, 0);
+		Arrays.fill(valueTable, 0);
+		size = 0;
+	}
+
+	/**
+	 * Makes room for one more entry, growing the tables if they are full.
+	 * @return the index of the new entry, whose key and value must be set before calling
+	 *         {@link #link(int)}
+	 */
+	protected int newEntry() {
+		if (size == keyTable.length / 2) grow();
+
+		return size++;
+	}
+
+	/**
+	 * Adds an entry to both tables.
+	 */
+	protected void link(final int entry) {
+		insert(keyTable, keyHash(entry), entry);
+		insert(valueTable, valueHash(entry), entry);
+	}
+
+	/**
+	 * Removes an entry from the value table only, before its value is changed.
+	 */
+	protected void unlinkValue(final int entry) {
+		delete(valueTable, find(valueTable, valueHash(entry), entry), false);
+	}
+
+	/**
+	 * Adds an entry to the value table only, after its value is changed.
+	 */
+	protected void linkValue(final int entry) {
+		insert(valueTable, valueHash(entry), entry);
+	}
+
+	/**
+	 * Removes an entry from the map, moving the last entry into its place.
+	 */
+	protected void removeEntry(final int entry) {
+		delete(keyTable, find(keyTable, keyHash(entry), entry), true);
+		delete(valueTable, find(valueTable, valueHash(entry), entry), false);
+
+		final int last = size - 1;
+		if (entry != last) {
+			keyTable[find(keyTable, keyHash(last), last)] = entry + 1;
+			valueTable[find(valueTable, valueHash(last), last)] = entry + 1;
+			moveEntry(last, entry);
+		}
+		clearEntry(last);
+		size--;
+	}
+
+	/**
+	 * @return the slot of the table holding the given entry, which must be in it
+	 */
+	private int find(final int[] table, final int hash, final int entry) {
+		int i = hash & mask;
+		while (table[i] != entry + 1) {
+			i = i + 1 & mask;
+		}
+		return i;
+	}
+
+	private void insert(final int[] table, final int hash, final int entry) {
+		int i = hash & mask;
+		while (table[i] != 0) {
+			i = i + 1 & mask;
+		}
+		table[i] = entry + 1;
+	}
+
+	/**
+	 * Clears a slot of a table, shifting back any entries after it that would otherwise no longer
+	 * be found from their home slot.
+	 */
+	private void delete(final int[] table, final int slot, final boolean keys) {
+		int hole = slot;
+		for (int i = slot + 1 & mask; table[i] != 0; i = i + 1 & mask) {
+			final int entry = table[i] - 1;
+			final int home = (keys ? keyHash(entry) : valueHash(entry)) & mask;
+			// Move the entry into the hole if the hole lies between its home slot and its slot
+			if ((i - home & mask) >= (i - hole & mask)) {
+				table[hole] = table[i];
+				hole = i;
+			}
+		}
+		table[hole] = 0;
+	}
+
+	private void grow() {
+		final int capacity = keyTable.length;
+		if (capacity > 1 << 29) throw new IllegalStateException("Map is full");
+
+		resizeEntries(capacity);
+		keyTable = new int[capacity * 2];
+		valueTable = new int[capacity * 2];
+		mask = capacity * 2 - 1;
+		for (int i = 0; i < size; i++) {
+			link(i);
+		}
+	}
+
+}
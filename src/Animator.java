@@ -0,0 +1,246 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.function.IntToDoubleFunction;
+
+import javafx.animation.AnimationTimer;
+
+/**
+ * Moves and fades cards from a single {@link AnimationTimer}, instead of a transition per card.
+ * Each movement is a tween record, taken from a pool and returned to it when done, and every frame
+ * advances all tweens at once, writing each card's position once. Whatever has to happen after an
+ * animation, such as placing a card once it has landed, is an event in a queue ordered by time,
+ * which runs in the first frame at or after its time, after the tweens of that frame.<br>
+ * Tweens move cards to a slot and row of the board rather than to a fixed point, so a card still
+ * lands where it belongs if the window is resized while it moves. The timer only runs while there
+ * are tweens or events. All methods must be called on the JavaFX application thread.
+ */
+public class Animator {
+
+	/**
+	 * The slot of tweens that start from wherever the card is when they start.
+	 */
+	private static final int CURRENT = Integer.MIN_VALUE;
+
+	private static final class Tween {
+		Card card;
+		long start, end;
+		boolean fade, started;
+		int fromSlot, fromRow, toSlot, toRow;
+		double fromX, fromY, fromOpacity, toOpacity;
+	}
+
+	private static final class Event implements Comparable<Event> {
+		final long time;
+		final long sequence;
+		final Runnable action;
+
+		Event(final long time, final long sequence, final Runnable action) {
+			this.time = time;
+			this.sequence = sequence;
+			this.action = action;
+		}
+
+		@Override
+		public int compareTo(final Event other) {
+			if (time != other.time) return Long.compare(time, other.time);
+			return Long.compare(sequence, other.sequence);
+		}
+	}
+
+	private final IntToDoubleFunction x, y;
+
+	/**
+	 * The running tweens, in the order they were added, so that later tweens of a card write its
+	 * position after earlier ones.
+	 */
+	private Tween[] tweens = new Tween[64];
+	private int tweenCount;
+	private final ArrayDeque<Tween> pool = new ArrayDeque<>();
+
+	private final PriorityQueue<Event> events = new PriorityQueue<>();
+	private long sequence;
+
+	private final AnimationTimer timer = new AnimationTimer() {
+		@Override
+		public void handle(final long now) {
+			frame(now);
+		}
+	};
+	private boolean running;
+
+	/**
+	 * @param x - the x position of cards in a slot
+	 * @param y - the y position of cards at a row of a slot, where negative rows are the top board
+	 */
+	public Animator(final IntToDoubleFunction x, final IntToDoubleFunction y) {
+		this.x = x;
+		this.y = y;
+	}
+
+	/**
+	 * Moves a card from wherever it is when the move starts to a position on the board.
+	 * @param delay - the time until the move starts, in milliseconds
+	 * @param duration - the time the move takes, in milliseconds
+	 */
+	public void move(final Card card, final double delay, final double duration, final int toSlot, final int toRow) {
+		moveFrom(card, delay, duration, CURRENT, 0, toSlot, toRow);
+	}
+
+	/**
+	 * Moves a card between two positions on the board. Until the move starts, the card is kept at
+	 * the first position.
+	 * @param delay - the time until the move starts, in milliseconds
+	 * @param duration - the time the move takes, in milliseconds
+	 */
+	public void moveFrom(final Card card, final double delay, final double duration, final int fromSlot, final int fromRow, final int toSlot, final int toRow) {
+		final Tween tween = add(card, delay, duration);
+		tween.fromSlot = fromSlot;
+		tween.fromRow = fromRow;
+		tween.toSlot = toSlot;
+		tween.toRow = toRow;
+	}
+
+	/**
+	 * Changes the opacity of a card, from whatever it is when the fade starts.
+	 * @param delay - the time until the fade starts, in milliseconds
+	 * @param duration - the time the fade takes, in milliseconds
+	 */
+	public void fade(final Card card, final double delay, final double duration, final double toOpacity) {
+		final Tween tween = add(card, delay, duration);
+		tween.fade = true;
+		tween.toOpacity = toOpacity;
+	}
+
+	/**
+	 * Runs an action after the given time, once the tweens of that frame have been advanced. Actions
+	 * due at the same time run in the order they were scheduled.
+	 * @param delay - the time until the action runs, in milliseconds
+	 */
+	public void schedule(final double delay, final Runnable action) {
+		events.add(new Event(System.nanoTime() + millisToNanos(delay), sequence++, action));
+		start();
+	}
+
+	/**
+	 * @return whether or not the card is being, or is going to be, moved or faded
+	 */
+	public boolean isAnimating(final Card card) {
+		return card.tweens > 0;
+	}
+
+	/**
+	 * @return whether or not there are no tweens or events left
+	 */
+	public boolean isIdle() {
+		return tweenCount == 0 && events.isEmpty();
+	}
+
+	/**
+	 * Stops every tween where it is, and drops every event.
+	 */
+	public void cancel() {
+		for (int i = 0; i < tweenCount; i++) {
+			recycle(tweens[i]);
+			tweens[i] = null;
+		}
+		tweenCount = 0;
+		events.clear();
+
+		timer.stop();
+		running = false;
+	}
+
+	private Tween add(final Card card, final double delay, final double duration) {
+		final Tween tween = pool.isEmpty() ? new Tween() : pool.pop();
+		tween.card = card;
+		tween.start = System.nanoTime() + millisToNanos(delay);
+		tween.end = tween.start + Math.max(1, millisToNanos(duration));
+		tween.fade = false;
+		tween.started = false;
+		card.tweens++;
+
+		if (tweenCount == tweens.length) tweens = Arrays.copyOf(tweens, tweenCount * 2);
+		tweens[tweenCount++] = tween;
+		start();
+		return tween;
+	}
+
+	private void frame(final long now) {
+		// Advance every tween, dropping the finished ones while keeping the others in order
+		int kept = 0;
+		for (int i = 0; i < tweenCount; i++) {
+			final Tween tween = tweens[i];
+			tweens[i] = null;
+			if (advance(tween, now)) {
+				recycle(tween);
+			} else {
+				tweens[kept++] = tween;
+			}
+		}
+		tweenCount = kept;
+
+		while (!events.isEmpty() && events.peek().time <= now) {
+			events.poll().action.run();
+		}
+
+		if (isIdle()) {
+			timer.stop();
+			running = false;
+		}
+	}
+
+	/**
+	 * Writes the state of a tween at the given time to its card.
+	 * @return whether or not the tween has finished
+	 */
+	private boolean advance(final Tween tween, final long now) {
+		final Card card = tween.card;
+		if (now < tween.start) {
+			// Hold cards that move from a position there until they start
+			if (!tween.fade && tween.fromSlot != CURRENT) {
+				card.setTranslateX(x.applyAsDouble(tween.fromSlot));
+				card.setTranslateY(y.applyAsDouble(tween.fromRow));
+			}
+			return false;
+		}
+
+		if (!tween.started) {
+			tween.started = true;
+			tween.fromX = card.getTranslateX();
+			tween.fromY = card.getTranslateY();
+			tween.fromOpacity = card.getOpacity();
+		}
+
+		final double t = Math.min(1, (double) (now - tween.start) / (tween.end - tween.start));
+		// Ease in and out, as transitions do by default
+		final double eased = t * t * (3 - 2 * t);
+		if (tween.fade) {
+			card.setOpacity(tween.fromOpacity + (tween.toOpacity - tween.fromOpacity) * eased);
+		} else {
+			final double fromX = tween.fromSlot == CURRENT ? tween.fromX : x.applyAsDouble(tween.fromSlot);
+			final double fromY = tween.fromSlot == CURRENT ? tween.fromY : y.applyAsDouble(tween.fromRow);
+			card.setTranslateX(fromX + (x.applyAsDouble(tween.toSlot) - fromX) * eased);
+			card.setTranslateY(fromY + (y.applyAsDouble(tween.toRow) - fromY) * eased);
+		}
+		return t >= 1;
+	}
+
+	private void recycle(final Tween tween) {
+		tween.card.tweens--;
+		tween.card = null;
+		pool.push(tween);
+	}
+
+	private void start() {
+		if (running) return;
+
+		running = true;
+		timer.start();
+	}
+
+	private static long millisToNanos(final double millis) {
+		return (long) (millis * 1_000_000);
+	}
+
+}
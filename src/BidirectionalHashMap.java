@@ -1,4 +1,7 @@
+import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.BiFunction;
 
@@ -83,9 +86,17 @@ public class BidirectionalHashMap<K, V> extends HashMap<K, V> {
 		return ret;
 	}
 
+	/**
+	 * Replaces every value with the result of the function. If the function maps several keys to
+	 * the same value, only the last key it is called with keeps it.
+	 */
 	@Override
 	public void replaceAll(final BiFunction<? super K, ? super V, ? extends V> function) {
-		throw new UnsupportedOperationException("I haven't made this yet!");
+		final List<Map.Entry<K, V>> entries = new ArrayList<>(size());
+		forEach((key, value) -> entries.add(new AbstractMap.SimpleImmutableEntry<>(key, function.apply(key, value))));
+
+		clear();
+		entries.forEach(entry -> put(entry.getKey(), entry.getValue()));
 	}
 
 	@Override
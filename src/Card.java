@@ -15,16 +15,33 @@ import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.Background;
 import javafx.scene.layout.BackgroundFill;
+import javafx.scene.layout.Border;
+import javafx.scene.layout.BorderStroke;
+import javafx.scene.layout.BorderStrokeStyle;
+import javafx.scene.layout.BorderWidths;
 import javafx.scene.layout.CornerRadii;
 import javafx.scene.paint.Color;
-import javafx.scene.text.Font;
 
 public class Card extends Label {
 
-	public final int card;
+	private int card;
 	private final NumberBinding widthBinding, heightBinding;
 	private final Property<ChangeListener<Point2D>> onMove = new SimpleObjectProperty<>();
 	private final Property<EventHandler<MouseEvent>> onDrag = new SimpleObjectProperty<>();
+	private final Property<EventHandler<MouseEvent>> onDragged = new SimpleObjectProperty<>();
+	/**
+	 * The position of the card in the {@link CardRegistry} that holds it, or -1 if none does.
+	 */
+	int position = -1;
+	/**
+	 * Whether or not the card is kept at its position by the layout pass of the window, rather than
+	 * moved by an animation or a drag.
+	 */
+	boolean laidOut;
+	/**
+	 * The number of tweens of an {@link Animator} that are moving or fading the card.
+	 */
+	int tweens;
 
 	private double offsetX, offsetY;
 	private Point2D start;
@@ -32,15 +49,17 @@ public class Card extends Label {
 	public static final String[] DRAGONS = new String[] {"\u4E2D", "\u767C", "\u000B"};// "\uD83D\uDDCC"};
 	public static final String[] NUMERALS = new String[] {"\u4E00", "\u4E8C", "\u4E09", "\u56DB", "\u4E94", "\u516D", "\u4E03", "\u516B", "\u4E5D"};
 
+	static final Border HIGHLIGHT_BORDER = new Border(new BorderStroke(Color.GOLD, BorderStrokeStyle.SOLID, new CornerRadii(10), new BorderWidths(3)));
+	private static final Background BACKGROUND = new Background(new BackgroundFill(new Color(.9, .9, .9, 1), new CornerRadii(10), Insets.EMPTY));
+	private static final DropShadow SHADOW = new DropShadow(3.25, 0, 1, Color.BLACK);
+
 	public Card(final int card, final NumberBinding widthBinding) {
 		this(card, widthBinding, c -> true);
 	}
 
 	public Card(final int card, final NumberBinding widthBinding, final Predicate<Card> draggable) {
-		super(" " + nameOfCard(card));
-		setTextFill(cardColor(card));
+		show(card);
 
-		this.card = card;
 		this.widthBinding = widthBinding.subtract(10);
 		heightBinding = widthBinding.multiply(7D / 5).subtract(5);
 
@@ -49,12 +68,9 @@ public class Card extends Label {
 		minHeightProperty().bind(heightBinding);
 		maxHeightProperty().bind(heightBinding);
 
-		setFont(new Font(heightBinding.getValue().doubleValue() / 8));
-		heightBinding.addListener((observable, oldValue, newValue) -> {
-			setFont(new Font(newValue.doubleValue() / 8));
-		});
+		updateFont();
 
-		setBackground(new Background(new BackgroundFill(new Color(.9, .9, .9, 1), new CornerRadii(10), Insets.EMPTY)));
+		setBackground(BACKGROUND);
 		setAlignment(Pos.TOP_LEFT);
 		setRotationAxis(new Point3D(0, 1, 0));
 
@@ -77,6 +93,10 @@ public class Card extends Label {
 			translateYProperty().unbind();
 			setTranslateX(event.getSceneX() + offsetX);
 			setTranslateY(event.getSceneY() + offsetY);
+
+			if (onDragged.getValue() != null) {
+				onDragged.getValue().handle(event);
+			}
 		});
 
 		setOnMouseReleased(event -> {
@@ -90,15 +110,59 @@ public class Card extends Label {
 		});
 	}
 
+	public int getCard() {
+		return card;
+	}
+
+	/**
+	 * Shows another card on this node, so that the node can be reused rather than created again.
+	 * Everything that a game changes about the node is reset, apart from its event handlers.
+	 */
+	public void rebind(final int card) {
+		show(card);
+
+		translateXProperty().unbind();
+		translateYProperty().unbind();
+		setTranslateX(0);
+		setTranslateY(0);
+		setRotate(0);
+		setOpacity(1);
+		setEffect(null);
+		setHighlighted(false);
+		start = null;
+		laidOut = false;
+	}
+
+	private void show(final int card) {
+		this.card = card;
+		setText(" " + nameOfCard(card));
+		setTextFill(cardColor(card));
+	}
+
+	/**
+	 * Sizes the font to the current size of the card. This is not done as the card is resized, so
+	 * that the owner can do it for every card at most once per frame.
+	 */
+	public void updateFont() {
+		setFont(FontCache.get(heightBinding.doubleValue() / 8));
+	}
+
 	public void enableShadow(final boolean enabled) {
 		if (!enabled) {
 			setEffect(null);
 		} else if (getEffect() == null && (card == Game.ROSE || (card & 0b1001111) != 0b1001111)) {
-			setEffect(new DropShadow(3.25, 0, 1, Color.BLACK));
+			setEffect(SHADOW);
 		}
 
 	}
 
+	/**
+	 * Outlines the card, e.g. to show a hint.
+	 */
+	public void setHighlighted(final boolean highlighted) {
+		setBorder(highlighted ? HIGHLIGHT_BORDER : null);
+	}
+
 	public boolean isDragging() {
 		return start != null;
 	}
@@ -159,4 +223,19 @@ public class Card extends Label {
 		return onDrag;
 	}
 
+	public EventHandler<MouseEvent> getOnDragged() {
+		return onDragged.getValue();
+	}
+
+	/**
+	 * Sets the handler called every time the card is moved by a drag, after it has been moved.
+	 */
+	public void setOnDragged(final EventHandler<MouseEvent> onDragged) {
+		this.onDragged.setValue(onDragged);
+	}
+
+	public Property<EventHandler<MouseEvent>> onDraggedProperty() {
+		return onDragged;
+	}
+
 }
@@ -0,0 +1,142 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The card shown at each position of the board, and the position of each card shown. Positions
+ * are a slot from 0 to 7 and an index: 0 and up on the main board, -1 in the sideboard and -2 in
+ * the completed slots.<br>
+ * Cards are kept in a fixed array indexed by position, and each card remembers its own position,
+ * so neither looking up nor moving a card allocates. A card can only be at one position and a
+ * position can only hold one card: putting a card somewhere removes it from where it was, and
+ * replaces the card that was there, as when a card is completed on top of another.
+ */
+public class CardRegistry {
+
+	/**
+	 * The number of indexes of each slot: the completed slot, the sideboard, and as many cards as
+	 * {@link Game} can hold in a column.
+	 */
+	private static final int ROWS = 2 + 16;
+
+	private final Card[] cards = new Card[8 * ROWS];
+	private int size;
+
+	/**
+	 * @return the card at the given position, or <code>null</code> if there is none
+	 */
+	public Card get(final int slot, final int index) {
+		return cards[position(slot, index)];
+	}
+
+	/**
+	 * Puts a card at the given position, removing it from its previous position.
+	 * @return the card that was at the position, which is removed from the registry, or
+	 *         <code>null</code> if there was none
+	 */
+	public Card put(final int slot, final int index, final Card card) {
+		final int position = position(slot, index);
+		if (card.position >= 0) {
+			cards[card.position] = null;
+			size--;
+		}
+
+		final Card old = cards[position];
+		if (old != null) {
+			old.position = -1;
+			size--;
+		}
+
+		cards[position] = card;
+		card.position = position;
+		size++;
+		return old;
+	}
+
+	/**
+	 * Removes a card from the registry.
+	 * @return whether or not the card was in the registry
+	 */
+	public boolean remove(final Card card) {
+		if (card.position < 0) return false;
+
+		cards[card.position] = null;
+		card.position = -1;
+		size--;
+		return true;
+	}
+
+	/**
+	 * @return whether or not the card is in the registry
+	 */
+	public boolean contains(final Card card) {
+		return card.position >= 0;
+	}
+
+	/**
+	 * @return the slot of the given card, which must be in the registry
+	 */
+	public int slotOf(final Card card) {
+		if (card.position < 0) throw new IllegalArgumentException("Card (" + Card.nameOfCard(card.getCard()) + ") not in the registry");
+
+		return card.position / ROWS;
+	}
+
+	/**
+	 * @return the index of the given card, which must be in the registry
+	 */
+	public int indexOf(final Card card) {
+		if (card.position < 0) throw new IllegalArgumentException("Card (" + Card.nameOfCard(card.getCard()) + ") not in the registry");
+
+		return card.position % ROWS - 2;
+	}
+
+	/**
+	 * @return the number of cards in the registry
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return a new list of the cards in the registry, by slot and then by index
+	 */
+	public List<Card> values() {
+		final List<Card> values = new ArrayList<>(size);
+		for (final Card card : cards) {
+			if (card != null) values.add(card);
+		}
+		return values;
+	}
+
+	/**
+	 * Calls the action with each card in the registry, by slot and then by index, without
+	 * allocating. The registry must not be changed by the action.
+	 */
+	public void forEach(final Consumer<? super Card> action) {
+		for (final Card card : cards) {
+			if (card != null) action.accept(card);
+		}
+	}
+
+	/**
+	 * Removes every card from the registry.
+	 */
+	public void clear() {
+		for (int i = 0; i < cards.length; i++) {
+			if (cards[i] != null) {
+				cards[i].position = -1;
+				cards[i] = null;
+			}
+		}
+		size = 0;
+	}
+
+	private static int position(final int slot, final int index) {
+		if (slot < 0 || slot >= 8) throw new IllegalArgumentException("Slot (" + slot + ") out of range");
+		if (index < -2 || index >= ROWS - 2) throw new IllegalArgumentException("Index (" + index + ") out of range");
+
+		return slot * ROWS + index + 2;
+	}
+
+}
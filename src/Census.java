@@ -0,0 +1,219 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.BitSet;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A command line tool that solves a range of seeded deals (see {@link Game#Game(long)}) on every
+ * core, and streams the result of each deal to a file. Does not depend on JavaFX.<br>
+ * Usage: <code>java Census -start seed -count n -out file [-threads n] [-nodes n] [-time ms]</code>
+ * <br>
+ * If the output file already holds results for the same range of seeds, the census resumes where it
+ * left off, only solving the deals that have no result yet.<br>
+ * The output file starts with a header of the {@link #MAGIC} int, the {@link #VERSION} int, the
+ * first seed as a long and the number of seeds as a long, followed by a {@value #RECORD_SIZE} byte
+ * record for each deal, in the order they were solved:
+ * <ul>
+ * <li>int: the offset of the seed from the first seed
+ * <li>byte: the ordinal of the {@link Solution.Status}
+ * <li>short: the number of moves in the solution, or -1 if there is none
+ * <li>int: the number of nodes expanded
+ * <li>int: the time taken, in microseconds
+ * </ul>
+ * All values are big-endian.
+ */
+public class Census {
+
+	public static final int MAGIC = 0x535A4353; // "SZCS"
+	public static final int VERSION = 1;
+
+	private static final int HEADER_SIZE = 4 + 4 + 8 + 8;
+	private static final int RECORD_SIZE = 4 + 1 + 2 + 4 + 4;
+
+	/**
+	 * How often the output file is flushed, in milliseconds. No more than this much work is lost if
+	 * the census is stopped.
+	 */
+	private static final long CHECKPOINT_INTERVAL = 1000;
+
+	private static final class Result {
+		final int offset;
+		final Solution solution;
+
+		Result(final int offset, final Solution solution) {
+			this.offset = offset;
+			this.solution = solution;
+		}
+	}
+
+	public static void main(final String[] args) throws IOException, InterruptedException {
+		long start = 0;
+		long count = -1;
+		String out = null;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int nodes = Solver.DEFAULT_MAX_NODES;
+		long time = Solver.DEFAULT_TIME_LIMIT;
+
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+				case "-start":
+					start = Long.parseLong(args[++i]);
+					break;
+				case "-count":
+					count = Long.parseLong(args[++i]);
+					break;
+				case "-out":
+					out = args[++i];
+					break;
+				case "-threads":
+					threads = Integer.parseInt(args[++i]);
+					break;
+				case "-nodes":
+					nodes = Integer.parseInt(args[++i]);
+					break;
+				case "-time":
+					time = Long.parseLong(args[++i]);
+					break;
+				default:
+					usage("Unknown option: " + args[i]);
+			}
+		}
+
+		if (out == null) usage("No output file given");
+		if (count <= 0 || count > Integer.MAX_VALUE) usage("Count must be between 1 and " + Integer.MAX_VALUE);
+		if (threads <= 0) usage("Thread count must be positive");
+
+		final File file = new File(out);
+		final BitSet done = file.exists() ? resume(file, start, (int) count) : new BitSet();
+		if (!file.exists()) {
+			try (DataOutputStream header = new DataOutputStream(new FileOutputStream(file))) {
+				header.writeInt(MAGIC);
+				header.writeInt(VERSION);
+				header.writeLong(start);
+				header.writeLong(count);
+			}
+		}
+
+		final int remaining = (int) count - done.cardinality();
+		System.err.printf(Locale.ROOT, "Solving %d of %d deals on %d threads%n", remaining, count, threads);
+
+		final BlockingQueue<Result> results = new ArrayBlockingQueue<>(16 * 1024);
+		final AtomicLong next = new AtomicLong();
+		final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+		final ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+			final Thread thread = new Thread(runnable, "Census worker");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		final long firstSeed = start, seeds = count;
+		final int maxNodes = nodes;
+		final long timeLimit = time;
+		for (int t = 0; t < threads; t++) {
+			pool.execute(() -> {
+				try {
+					final Solver solver = new Solver(maxNodes, timeLimit);
+					for (long offset; (offset = next.getAndIncrement()) < seeds;) {
+						if (done.get((int) offset)) continue;
+
+						results.put(new Result((int) offset, solver.findSolution(new Game(firstSeed + offset))));
+					}
+				} catch (final Throwable e) {
+					failure.compareAndSet(null, e);
+				}
+			});
+		}
+		pool.shutdown();
+
+		final int[] statusCounts = new int[Solution.Status.values().length];
+		try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true), 64 * 1024))) {
+			long lastCheckpoint = System.currentTimeMillis();
+			for (int written = 0; written < remaining;) {
+				final Result result = results.poll(CHECKPOINT_INTERVAL, TimeUnit.MILLISECONDS);
+				if (result != null) {
+					write(output, result);
+					statusCounts[result.solution.status.ordinal()]++;
+					written++;
+				} else if (failure.get() != null) {
+					throw new IllegalStateException("A worker failed", failure.get());
+				}
+
+				final long now = System.currentTimeMillis();
+				if (now - lastCheckpoint >= CHECKPOINT_INTERVAL) {
+					output.flush();
+					lastCheckpoint = now;
+					System.err.printf(Locale.ROOT, "%d / %d%n", written, remaining);
+				}
+			}
+		}
+
+		System.err.printf(Locale.ROOT, "Done: %d solved, %d unsolvable, %d over the limits%n", statusCounts[Solution.Status.SOLVED.ordinal()], statusCounts[Solution.Status.UNSOLVABLE.ordinal()], statusCounts[Solution.Status.LIMIT_REACHED.ordinal()]);
+	}
+
+	private static void write(final DataOutputStream output, final Result result) throws IOException {
+		final Solution solution = result.solution;
+		output.writeInt(result.offset);
+		output.writeByte(solution.status.ordinal());
+		output.writeShort(solution.isSolved() ? solution.length() : -1);
+		output.writeInt(solution.nodes);
+		output.writeInt((int) Math.min(solution.time / 1000, Integer.MAX_VALUE));
+	}
+
+	/**
+	 * Reads the deals that already have results from an existing output file, and removes any
+	 * partly written record from the end of it.
+	 * @return the offsets of the seeds that have results
+	 */
+	private static BitSet resume(final File file, final long start, final int count) throws IOException {
+		final BitSet done = new BitSet(count);
+		long records = 0;
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (input.readInt() != MAGIC || input.readInt() != VERSION) throw new IOException(file + " is not a census file");
+			if (input.readLong() != start || input.readLong() != count) throw new IOException(file + " holds a different range of seeds");
+
+			while (true) {
+				final int offset;
+				try {
+					offset = input.readInt();
+					input.readFully(new byte[RECORD_SIZE - 4]);
+				} catch (final EOFException e) {
+					break;
+				}
+
+				if (offset < 0 || offset >= count) throw new IOException(file + " is corrupt: seed offset " + offset + " out of range");
+				done.set(offset);
+				records++;
+			}
+		}
+
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.setLength(HEADER_SIZE + records * RECORD_SIZE);
+		}
+
+		System.err.printf(Locale.ROOT, "Resuming with %d results%n", records);
+		return done;
+	}
+
+	private static void usage(final String error) {
+		System.err.println(error);
+		System.err.println("Usage: java Census -start seed -count n -out file [-threads n] [-nodes n] [-time ms]");
+		System.exit(2);
+	}
+
+}
@@ -0,0 +1,285 @@
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+/**
+ * A one-to-one map like {@link BidirectionalHashMap} that may be used by many threads at once.
+ * Both directions are {@link ConcurrentHashMap}s, so {@link #get(Object)} and
+ * {@link #getKey(Object)} never block.<br>
+ * Writers are serialized by lock striping: the keys and values are spread over
+ * {@value #STRIPES} locks by their hash codes, and a write holds the locks of every key and value
+ * whose entry it changes, i.e. the key and value given, the previous value of the key and the
+ * previous key of the value. Every entry is only ever changed while the locks of both its key and
+ * its value are held, so once a writer holds the locks of a key and a value, their entries cannot
+ * change under it. The locks are always taken in the same order, so writers never deadlock, and
+ * writers of unrelated entries seldom wait for each other.<br>
+ * A lookup that races a write may see one direction of the map updated before the other, but the
+ * map is consistent again as soon as the write finishes. Keys and values may not be
+ * <code>null</code>.
+ */
+public class ConcurrentBidirectionalHashMap<K, V> {
+
+	/**
+	 * The number of locks. The set of locks held by a writer is a bit mask in a <code>long</code>,
+	 * so there can be at most 64.
+	 */
+	private static final int STRIPES = 64;
+
+	private final ConcurrentHashMap<K, V> forward;
+	private final ConcurrentHashMap<V, K> reverse;
+	private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+	public ConcurrentBidirectionalHashMap() {
+		this(16);
+	}
+
+	public ConcurrentBidirectionalHashMap(final int initialCapacity) {
+		forward = new ConcurrentHashMap<>(initialCapacity);
+		reverse = new ConcurrentHashMap<>(initialCapacity);
+		for (int i = 0; i < STRIPES; i++) {
+			locks[i] = new ReentrantLock();
+		}
+	}
+
+	/**
+	 * @return the value of the given key, or <code>null</code> if it is not in the map
+	 */
+	public V get(final Object key) {
+		return forward.get(key);
+	}
+
+	/**
+	 * @return the key of the given value, or <code>null</code> if it is not in the map
+	 */
+	public K getKey(final Object value) {
+		return reverse.get(value);
+	}
+
+	public K getKeyOrDefault(final Object value, final K defaultKey) {
+		return reverse.getOrDefault(value, defaultKey);
+	}
+
+	public boolean containsKey(final Object key) {
+		return forward.containsKey(key);
+	}
+
+	public boolean containsValue(final Object value) {
+		return reverse.containsKey(value);
+	}
+
+	public int size() {
+		return forward.size();
+	}
+
+	public boolean isEmpty() {
+		return forward.isEmpty();
+	}
+
+	/**
+	 * Maps a key to a value, removing the previous entries of both.
+	 * @return the previous value of the key, or <code>null</code> if it had none
+	 */
+	public V put(final K key, final V value) {
+		Objects.requireNonNull(key);
+		Objects.requireNonNull(value);
+
+		final long held = lockEntries(key, value);
+		try {
+			return link(key, value);
+		} finally {
+			unlock(held);
+		}
+	}
+
+	/**
+	 * Maps a key to a value if the key is not in the map, removing the previous entry of the value.
+	 * @return the value of the key, or <code>null</code> if it had none and was added
+	 */
+	public V putIfAbsent(final K key, final V value) {
+		Objects.requireNonNull(key);
+		Objects.requireNonNull(value);
+
+		final long held = lockEntries(key, value);
+		try {
+			final V old = forward.get(key);
+			if (old != null) return old;
+
+			return link(key, value);
+		} finally {
+			unlock(held);
+		}
+	}
+
+	/**
+	 * Maps a key to a value if the key is in the map, removing the previous entry of the value.
+	 * @return the previous value of the key, or <code>null</code> if it is not in the map
+	 */
+	public V replace(final K key, final V value) {
+		Objects.requireNonNull(key);
+		Objects.requireNonNull(value);
+
+		final long held = lockEntries(key, value);
+		try {
+			if (!forward.containsKey(key)) return null;
+
+			return link(key, value);
+		} finally {
+			unlock(held);
+		}
+	}
+
+	/**
+	 * Maps a key to a new value if it is mapped to the old value, removing the previous entry of
+	 * the new value.
+	 * @return whether or not the value was replaced
+	 */
+	public boolean replace(final K key, final V oldValue, final V newValue) {
+		Objects.requireNonNull(key);
+		Objects.requireNonNull(oldValue);
+		Objects.requireNonNull(newValue);
+
+		final long held = lockEntries(key, newValue);
+		try {
+			if (!oldValue.equals(forward.get(key))) return false;
+
+			link(key, newValue);
+			return true;
+		} finally {
+			unlock(held);
+		}
+	}
+
+	/**
+	 * @return the value of the removed key, or <code>null</code> if it is not in the map
+	 */
+	public V remove(final Object key) {
+		if (key == null) return null;
+
+		final long held = lockEntries(key, null);
+		try {
+			final V old = forward.remove(key);
+			if (old != null) reverse.remove(old);
+			return old;
+		} finally {
+			unlock(held);
+		}
+	}
+
+	/**
+	 * Removes a key if it is mapped to the given value.
+	 * @return whether or not the key was removed
+	 */
+	public boolean remove(final Object key, final Object value) {
+		if (key == null || value == null) return false;
+
+		final long held = lockEntries(key, value);
+		try {
+			if (!forward.remove(key, value)) return false;
+
+			reverse.remove(value);
+			return true;
+		} finally {
+			unlock(held);
+		}
+	}
+
+	/**
+	 * @return the key of the removed value, or <code>null</code> if it is not in the map
+	 */
+	public K removeValue(final Object value) {
+		if (value == null) return null;
+
+		final long held = lockEntries(null, value);
+		try {
+			final K old = reverse.remove(value);
+			if (old != null) forward.remove(old);
+			return old;
+		} finally {
+			unlock(held);
+		}
+	}
+
+	/**
+	 * Removes every entry from the map. This takes every lock, so it waits for all writers.
+	 */
+	public void clear() {
+		lock(-1L);
+		try {
+			forward.clear();
+			reverse.clear();
+		} finally {
+			unlock(-1L);
+		}
+	}
+
+	/**
+	 * Calls the action with each entry of the map. Entries written while this runs may or may not be
+	 * seen.
+	 */
+	public void forEach(final BiConsumer<? super K, ? super V> action) {
+		forward.forEach(action);
+	}
+
+	/**
+	 * Maps a key to a value, removing the previous entries of both. The locks of all four must be
+	 * held.
+	 * @return the previous value of the key
+	 */
+	private V link(final K key, final V value) {
+		final K other = reverse.get(value);
+		if (other != null && !other.equals(key)) forward.remove(other);
+
+		final V old = forward.put(key, value);
+		if (old != null && !old.equals(value)) reverse.remove(old);
+		reverse.put(value, key);
+		return old;
+	}
+
+	/**
+	 * Takes the locks of a key and a value, and of the current value of the key and the current key
+	 * of the value. Since those may change until the locks of the key and value are held, the locks
+	 * are taken again until they cover every entry.
+	 * @param key - the key, or <code>null</code> for none
+	 * @param value - the value, or <code>null</code> for none
+	 * @return the locks held, to be passed to {@link #unlock(long)}
+	 */
+	private long lockEntries(final Object key, final Object value) {
+		long held = stripe(key) | stripe(value);
+		lock(held);
+		while (true) {
+			final long needed = held | stripe(key == null ? null : forward.get(key)) | stripe(value == null ? null : reverse.get(value));
+			if (needed == held) return held;
+
+			// Take the locks again in order, rather than out of order on top of those held
+			unlock(held);
+			held = needed;
+			lock(held);
+		}
+	}
+
+	/**
+	 * @return the bit of the lock of the given key or value, or 0 for <code>null</code>
+	 */
+	private static long stripe(final Object o) {
+		if (o == null) return 0;
+
+		return 1L << (o.hashCode() * 0x9E3779B9 >>> 26);
+	}
+
+	/**
+	 * Takes the given locks, in order of their bits.
+	 */
+	private void lock(final long stripes) {
+		for (long s = stripes; s != 0; s &= s - 1) {
+			locks[Long.numberOfTrailingZeros(s)].lock();
+		}
+	}
+
+	private void unlock(final long stripes) {
+		for (long s = stripes; s != 0; s &= s - 1) {
+			locks[Long.numberOfTrailingZeros(s)].unlock();
+		}
+	}
+
+}
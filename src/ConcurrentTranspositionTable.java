@@ -0,0 +1,116 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size record of visited positions like {@link TranspositionTable}, that may be used by many
+ * threads at once without locking. Empty slots are claimed by compare-and-set on the key, so two
+ * threads adding the same new position never both see it as new while it stays in the table.<br>
+ * Depths are written without synchronization, as they only guide which entry is evicted: a racing
+ * eviction can at worst make the table forget a position, which is then searched again.<br>
+ * Unlike {@link TranspositionTable}, {@link #nextSearch()} takes time proportional to the capacity,
+ * and must not be called while other threads use the table.
+ */
+public class ConcurrentTranspositionTable implements PositionTable {
+
+	/**
+	 * The number of consecutive slots that a key may be stored in.
+	 */
+	private static final int PROBE_WINDOW = 8;
+
+	/**
+	 * The key of empty slots. Positions that hash to it are stored under {@link #ZERO_KEY} instead.
+	 */
+	private static final long EMPTY = 0;
+	private static final long ZERO_KEY = 0x9E3779B97F4A7C15L;
+
+	private final AtomicLongArray keys;
+	private final int[] depths;
+	private final int mask;
+
+	private final LongAdder size = new LongAdder();
+
+	/**
+	 * @param capacity - the number of entries the table can hold. This is rounded up to a power of
+	 *        two.
+	 */
+	public ConcurrentTranspositionTable(final int capacity) {
+		if (capacity <= 0 || capacity > 1 << 30) throw new IllegalArgumentException("Capacity (" + capacity + ") out of range");
+
+		final int length = Math.max(Integer.highestOneBit(capacity - 1) << 1, PROBE_WINDOW);
+		keys = new AtomicLongArray(length);
+		depths = new int[length];
+		mask = length - 1;
+	}
+
+	@Override
+	public boolean add(final long hash, final int depth) {
+		final long key = hash == EMPTY ? ZERO_KEY : hash;
+
+		int victim = -1;
+		int victimDepth = -1;
+		for (int probe = 0, i = index(key); probe < PROBE_WINDOW; probe++, i = i + 1 & mask) {
+			long current = keys.get(i);
+			if (current == EMPTY) {
+				if (keys.compareAndSet(i, EMPTY, key)) {
+					depths[i] = depth;
+					size.increment();
+					return true;
+				}
+				// Another thread claimed the slot first, possibly for the same key
+				current = keys.get(i);
+			}
+
+			if (current == key) return false;
+
+			final int entryDepth = depths[i];
+			if (entryDepth > victimDepth) {
+				victim = i;
+				victimDepth = entryDepth;
+			}
+		}
+
+		// Every slot of the window is in use, so only evict an entry that is deeper than this one
+		if (victimDepth < depth) return true;
+
+		keys.set(victim, key);
+		depths[victim] = depth;
+		return true;
+	}
+
+	@Override
+	public boolean contains(final long hash) {
+		final long key = hash == EMPTY ? ZERO_KEY : hash;
+		for (int probe = 0, i = index(key); probe < PROBE_WINDOW; probe++, i = i + 1 & mask) {
+			if (keys.get(i) == key) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Forgets every position in the table by clearing it. The keys are cleared with plain writes,
+	 * which are published to other threads by whatever hands them the table next, such as
+	 * submitting a task to a pool.
+	 */
+	@Override
+	public void nextSearch() {
+		for (int i = 0; i < keys.length(); i++) {
+			keys.setPlain(i, EMPTY);
+		}
+		size.reset();
+	}
+
+	@Override
+	public int size() {
+		return size.intValue();
+	}
+
+	@Override
+	public int capacity() {
+		return keys.length();
+	}
+
+	private int index(final long key) {
+		return (int) (key ^ key >>> 32) & mask;
+	}
+
+}
@@ -0,0 +1,157 @@
+import java.util.Arrays;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * The places that dragged cards can be dropped, indexed by the column of the board they are in.
+ * The targets are the destinations of the legal moves of the dragged cards, as given by
+ * {@link Game#generateMoves(int[])}, so a card is only ever dropped on a target the rules allow,
+ * and finding the target under a card only looks at the columns it overlaps.<br>
+ * Each column has at most two targets: the top board slot above it, and the bottom of the main
+ * board slot. The completed slots are one target, covering all four of their columns. Targets are
+ * placed with the same functions that lay out the cards, when they are looked up, so they follow
+ * the size of the window.
+ */
+public class DropTargets {
+
+	/**
+	 * The number of columns of the board.
+	 */
+	private static final int COLUMNS = 8;
+
+	private final IntToDoubleFunction x, y;
+
+	private final int[] moves = new int[Game.MOVE_BUFFER_SIZE];
+
+	/**
+	 * The destination slot and index of each target, as in {@link Game#move(int, int, int, int)}.
+	 */
+	private final int[] slots = new int[2 * COLUMNS], indexes = new int[2 * COLUMNS];
+	private int count;
+
+	/**
+	 * The target in the top board and in the main board of each column, or -1 for none.
+	 */
+	private final int[] top = new int[COLUMNS], main = new int[COLUMNS];
+
+	/**
+	 * @param x - the x position of cards in a column
+	 * @param y - the y position of cards at a row of a main board slot, where negative rows are the
+	 *        top board
+	 */
+	public DropTargets(final IntToDoubleFunction x, final IntToDoubleFunction y) {
+		this.x = x;
+		this.y = y;
+		clear();
+	}
+
+	/**
+	 * Finds the targets of the cards from the given position to the bottom of its slot, replacing
+	 * any previous targets.
+	 * @param srcSlot - the slot of the dragged card, as in {@link Game#move(int, int, int, int)}
+	 * @param srcIndex - the index of the dragged card, as in {@link Game#move(int, int, int, int)}
+	 */
+	public void build(final Game game, final int srcSlot, final int srcIndex) {
+		clear();
+
+		final int n = game.generateMoves(moves) * Game.MOVE_SIZE;
+		for (int i = 0; i < n; i += Game.MOVE_SIZE) {
+			if (moves[i] != srcSlot || moves[i + 1] != srcIndex) continue;
+
+			final int destSlot = moves[i + 2], destIndex = moves[i + 3];
+			if (destIndex == -2) {
+				// The player may drop a card on any of the completed slots
+				final int target = add(destSlot, destIndex);
+				Arrays.fill(top, 4, COLUMNS, target);
+			} else if (destIndex == -1) {
+				top[destSlot] = add(destSlot, destIndex);
+			} else {
+				main[destSlot] = add(destSlot, destIndex);
+			}
+		}
+	}
+
+	/**
+	 * Removes every target.
+	 */
+	public void clear() {
+		count = 0;
+		Arrays.fill(top, -1);
+		Arrays.fill(main, -1);
+	}
+
+	/**
+	 * Finds the target that a card at the given position overlaps most. A main board target covers
+	 * its slot from the top to the bottom of where the dropped card would be.
+	 * @param left - the x position of the card
+	 * @param upper - the y position of the card
+	 * @param width - the width of the card, and of the targets
+	 * @param height - the height of the card, and of the targets
+	 * @return the target, or -1 if the card overlaps none
+	 */
+	public int find(final double left, final double upper, final double width, final double height) {
+		int best = -1;
+		double bestArea = 0;
+
+		for (int column = 0; column < COLUMNS; column++) {
+			if (top[column] < 0 && main[column] < 0) continue;
+
+			final double columnX = x.applyAsDouble(column);
+			final double overlapX = Math.min(left + width, columnX + width) - Math.max(left, columnX);
+			if (overlapX <= 0) continue;
+
+			if (top[column] >= 0) {
+				final double topY = y.applyAsDouble(-1);
+				final double area = overlapX * overlap(upper, height, topY, topY + height);
+				if (area > bestArea) {
+					best = top[column];
+					bestArea = area;
+				}
+			}
+
+			if (main[column] >= 0) {
+				final double area = overlapX * overlap(upper, height, y.applyAsDouble(0), y.applyAsDouble(indexes[main[column]]) + height);
+				if (area > bestArea) {
+					best = main[column];
+					bestArea = area;
+				}
+			}
+		}
+
+		return best;
+	}
+
+	/**
+	 * @return the destination slot of a target. Targets in the completed slots give 4 for the rose,
+	 *         or 5 + the color of the card.
+	 */
+	public int slot(final int target) {
+		if (target < 0 || target >= count) throw new IllegalArgumentException("Target (" + target + ") out of range");
+
+		return slots[target];
+	}
+
+	/**
+	 * @return the destination index of a target: -2 for the completed slots, -1 for the sideboard,
+	 *         or the index the dragged card ends up at in a main board slot
+	 */
+	public int index(final int target) {
+		if (target < 0 || target >= count) throw new IllegalArgumentException("Target (" + target + ") out of range");
+
+		return indexes[target];
+	}
+
+	private int add(final int slot, final int index) {
+		slots[count] = slot;
+		indexes[count] = index;
+		return count++;
+	}
+
+	/**
+	 * @return the length of the overlap of a card from <i>upper</i> to <i>upper</i> +
+	 *         <i>height</i> with the range from <i>from</i> to <i>to</i>, or 0 if they do not overlap
+	 */
+	private static double overlap(final double upper, final double height, final double from, final double to) {
+		return Math.max(0, Math.min(upper + height, to) - Math.max(upper, from));
+	}
+
+}
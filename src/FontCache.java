@@ -0,0 +1,39 @@
+import java.util.Arrays;
+
+import javafx.scene.text.Font;
+
+/**
+ * Fonts of the default family, shared by every card and button. Sizes are rounded to the nearest
+ * {@link #QUANTUM} points, so that resizing the window reuses the same few fonts instead of creating
+ * a new one for every node on every change, and setting a node to the font it already has changes
+ * nothing.
+ */
+public final class FontCache {
+
+	/**
+	 * The step that font sizes are rounded to, in points.
+	 */
+	public static final double QUANTUM = 0.5;
+
+	/**
+	 * The font of each size, indexed by size / {@link #QUANTUM}. Grown as larger fonts are needed.
+	 */
+	private static Font[] fonts = new Font[128];
+
+	private FontCache() {
+	}
+
+	/**
+	 * @return the font of the default family closest to the given size. Must be called on the
+	 *         JavaFX application thread.
+	 */
+	public static Font get(final double size) {
+		final int step = Math.max(1, (int) Math.round(size / QUANTUM));
+		if (step >= fonts.length) fonts = Arrays.copyOf(fonts, Math.max(step + 1, fonts.length * 2));
+
+		Font font = fonts[step];
+		if (font == null) font = fonts[step] = new Font(step * QUANTUM);
+		return font;
+	}
+
+}
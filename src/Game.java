@@ -1,14 +1,112 @@
+import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.SplittableRandom;
 
 public class Game {
 
-	private final List<List<Integer>> board = new ArrayList<>();
-	private final List<Integer> topBoard = new ArrayList<>();
+	// Board layout:
+	// The main board is stored column-major in a single array, with each of the 8 columns taking
+	// up STRIDE entries. Only the first heights[slot] entries of each column are meaningful.
+	// The top board holds the 3 sideboard slots (0 - 2), the rose slot (3) and the completed
+	// slots for each color (4 - 6).
+	private static final int STRIDE = 16;
+
+	private final byte[] board = new byte[8 * STRIDE];
+	private final byte[] heights = new byte[8];
+	private final byte[] topBoard = new byte[7];
+
+	// Runs:
+	// For each card on the main board, the index of the first card of the run that ends with it,
+	// where every card in a run is linked to the card below it (see isLinked). The cards that can
+	// be dragged from a slot are the run that ends with its bottom card. Set when a card is pushed,
+	// as it only depends on the cards above.
+	private final byte[] runStarts = new byte[8 * STRIDE];
+
+	// Zobrist hashing:
+	// Every (position, card) pair has a random key, and the hash of the game is the XOR of the keys
+	// of every card on the board. Keys are indexed by (position << 7 | card), where positions are
+	// (slot * STRIDE + index) on the main board, and the top board slot on the top board. Empty
+	// positions do not contribute to the hash.
+	private static final long[] BOARD_KEYS = new long[8 * STRIDE << 7];
+	private static final long[] TOP_KEYS = new long[7 << 7];
+
+	// Canonical hashing:
+	// Main board slots can be swapped with each other without changing the game, and so can the
+	// sideboard slots. Each main board slot is hashed on its own with keys indexed by
+	// (index << 7 | card), and each sideboard card with a key indexed by the card alone, so that
+	// neither depends on which slot the cards are in. The completed slots are hashed as above.
+	private static final long[] COLUMN_KEYS = new long[STRIDE << 7];
+	private static final long[] SIDEBOARD_KEYS = new long[1 << 7];
+
+	static {
+		final SplittableRandom random = new SplittableRandom(0x5EED50L);
+		for (int i = 0; i < BOARD_KEYS.length; i++) {
+			BOARD_KEYS[i] = random.nextLong();
+		}
+		for (int i = 0; i < TOP_KEYS.length; i++) {
+			TOP_KEYS[i] = random.nextLong();
+		}
+		for (int i = 0; i < COLUMN_KEYS.length; i++) {
+			COLUMN_KEYS[i] = random.nextLong();
+		}
+		for (int i = 0; i < SIDEBOARD_KEYS.length; i++) {
+			SIDEBOARD_KEYS[i] = random.nextLong();
+		}
+	}
+
+	private long hash;
+
+	private final long[] columnHashes = new long[8];
+	private final long[] sortedColumnHashes = new long[8];
+	// The sum (rather than the XOR) of the keys of the sideboard cards, so that two of the same
+	// dragon do not cancel out
+	private long sideboardHash;
+	private long completedHash;
+
+	// Journal:
+	// Every move and dragon collection is recorded in the journal so that it can be undone. Each
+	// record takes RECORD_SIZE entries:
+	// Moves: MOVE, srcSlot, srcIndex, destSlot, destIndex, extra. destIndex is the index that the
+	// cards were moved to on the main board, -1 for the sideboard, or -2 for the completed slots,
+	// in which case destSlot is the top board slot the card went to and extra is the card that
+	// was there before. For moves to the main board, extra is the number of cards moved.
+	// Dragon collections: DRAGONS, color, slots (packed into 4 bits each), destinationSlot,
+	// number of slots, 0.
+	// Records between journalSize and journalEnd have been undone, and can be redone.
+	private static final int RECORD_SIZE = 6;
+	private static final int MOVE = 0;
+	private static final int DRAGONS = 1;
+
+	private int[] journal = new int[64 * RECORD_SIZE];
+	private int journalSize;
+	private int journalEnd;
+
+	// Summary counters:
+	// Kept up to date by push, truncate and setTop, so that the questions the window and the solver
+	// ask after every move do not have to scan the board.
+	/**
+	 * The number of dragons of each color that are at the bottom of a main board slot or in the
+	 * sideboard, i.e. that could be collected.
+	 */
+	private final byte[] openDragons = new byte[3];
+	/**
+	 * The number of sideboard slots that hold a card, including solved dragons.
+	 */
+	private int sideboardCards;
+	/**
+	 * The number of cards left on the main board.
+	 */
+	private int cardsLeft;
+	/**
+	 * The value of {@link #maxAutoFill()}, which only changes when a card is completed.
+	 */
+	private int autoFillLimit = 1;
 
 	// Cards:
 	// Numerical: 0b0xxyyyy, xx = color, yyyy = value
@@ -20,64 +118,348 @@ public class Game {
 	public static final int ROSE = 0b1111111;
 	public static final int DRAGON_MOD = 0b1000000;
 
-	public Game() {
-		final List<Integer> cards = new ArrayList<>();
+	// Card tables:
+	// The rules only depend on the cards involved, so they are worked out for every card (indexed
+	// by the card) and every pair of cards (indexed by card << 7 | other) when the class is loaded,
+	// and the rest of the class reads them instead of decoding the cards. Empty positions (-1) must
+	// be checked for before indexing.
+	/**
+	 * Whether or not the card may be placed on the other card in a main board slot.
+	 */
+	private static final boolean[] STACKS = new boolean[1 << 14];
+	/**
+	 * Whether or not the card can be dragged along with the other card below it.
+	 */
+	private static final boolean[] LINKS = new boolean[1 << 14];
+	/**
+	 * Whether or not the card is a dragon that has not been collected.
+	 */
+	private static final boolean[] IS_DRAGON = new boolean[1 << 7];
+	/**
+	 * Whether or not the card can never leave the sideboard: solved dragons, and the rose, as it
+	 * shares their bits.
+	 */
+	private static final boolean[] IS_SOLVED = new boolean[1 << 7];
+	private static final byte[] COLORS = new byte[1 << 7];
+	private static final byte[] VALUES = new byte[1 << 7];
+	/**
+	 * The top board slot the card is completed into, or -1 for dragons.
+	 */
+	private static final byte[] COMPLETED_SLOTS = new byte[1 << 7];
+	/**
+	 * The card that must be in the completed slot before the card can be completed there, i.e.
+	 * the card that the card is next after, or -1 if the slot must be empty.
+	 */
+	private static final byte[] COMPLETES_ON = new byte[1 << 7];
+
+	static {
+		for (int card = 0; card < 1 << 7; card++) {
+			final int color = card >> 4 & 0b11;
+			final int value = card & 0b1111;
+			final boolean dragon = (card & 0b1001111) == DRAGON_MOD;
+
+			IS_DRAGON[card] = dragon;
+			IS_SOLVED[card] = (card & 0b1001111) == 0b1001111;
+			COLORS[card] = (byte) color;
+			VALUES[card] = (byte) value;
+
+			if (card == ROSE) {
+				COMPLETED_SLOTS[card] = 3;
+				COMPLETES_ON[card] = -1;
+			} else if ((card & DRAGON_MOD) != 0) {
+				COMPLETED_SLOTS[card] = -1;
+				COMPLETES_ON[card] = -1;
+			} else {
+				COMPLETED_SLOTS[card] = (byte) (4 + color);
+				COMPLETES_ON[card] = (byte) (value == 0 ? -1 : card - 1);
+			}
+
+			for (int other = 0; other < 1 << 7; other++) {
+				final boolean alternates = (card & 0b110000) != (other & 0b110000);
+
+				// Dragons cannot be placed on any card, and cards go on the card one higher
+				STACKS[card << 7 | other] = !dragon && (other & 0b1111) - 1 == value && alternates;
+				// Cards are dragged along with the card one lower below them
+				LINKS[card << 7 | other] = (card & DRAGON_MOD) == 0 && value - 1 == (other & 0b1111) && alternates;
+			}
+		}
+	}
+
+	/**
+	 * Source index used in move lists (such as {@link Solution#moves}) to denote collecting the
+	 * dragons of a color rather than moving a card.
+	 */
+	public static final int COLLECT_DRAGONS = -3;
+
+	/**
+	 * The number of entries used by each move in {@link #generateMoves(int[])}.
+	 */
+	public static final int MOVE_SIZE = 4;
+
+	/**
+	 * An upper bound on the number of legal moves in any position: 3 dragon collections, plus 1
+	 * completion, 3 sideboard moves and 13 cards * 7 slots for each main board slot, plus 1
+	 * completion, 2 sideboard moves and 8 slots for each sideboard card.
+	 */
+	public static final int MAX_MOVES = 3 + 8 * (1 + 3 + 13 * 7) + 3 * (1 + 2 + 8);
+
+	/**
+	 * The minimum length of the array passed to {@link #generateMoves(int[])}.
+	 */
+	public static final int MOVE_BUFFER_SIZE = MAX_MOVES * MOVE_SIZE;
+
+	/**
+	 * The minimum length of the array passed to {@link #settle(int[])}: every numbered card and the
+	 * rose can be autofilled once.
+	 */
+	public static final int SETTLE_BUFFER_SIZE = (3 * 9 + 1) * MOVE_SIZE;
+
+	// Deals:
+	// A deal is the order of the 40 cards, with the first five cards going to the first main board
+	// slot from top to bottom, the next five to the second slot, and so on. Deals are
+	// numbered by their rank among all orderings of the deck, counting the four dragons of each
+	// color as identical, which gives 40! / 4!^3 (about 2^145) different deals.
+	private static final int DECK_SIZE = 40;
+
+	/**
+	 * The distinct cards of the deck in ascending order, and the number of each card in the deck.
+	 */
+	private static final int[] CARD_TYPES, CARD_COUNTS;
+
+	/**
+	 * The number of different deals, one more than the highest deal ID.
+	 */
+	public static final BigInteger DEAL_COUNT;
+
+	static {
+		final int[] types = new int[DECK_SIZE];
+		final int[] counts = new int[DECK_SIZE];
+		int n = 0;
 		for (int c = 0; c < 3; c++) {
 			for (int i = 0; i < 9; i++) {
-				cards.add(i | c << 4);
-			}
-			for (int i = 0; i < 4; i++) {
-				cards.add(c << 4 | DRAGON_MOD);
+				types[n] = i | c << 4;
+				counts[n++] = 1;
 			}
 		}
-		cards.add(ROSE);
-		Collections.shuffle(cards);
+		for (int c = 0; c < 3; c++) {
+			types[n] = c << 4 | DRAGON_MOD;
+			counts[n++] = 4;
+		}
+		types[n] = ROSE;
+		counts[n++] = 1;
+
+		CARD_TYPES = Arrays.copyOf(types, n);
+		CARD_COUNTS = Arrays.copyOf(counts, n);
+		DEAL_COUNT = permutations(DECK_SIZE, CARD_COUNTS);
+	}
+
+	/**
+	 * The deal the game started from.
+	 */
+	private final byte[] deal = new byte[DECK_SIZE];
+
+	/**
+	 * Deals a random game.
+	 */
+	public Game() {
+		this(new Random());
+	}
+
+	/**
+	 * Deals the game with the given seed. The same seed always gives the same deal, so a game can be
+	 * reproduced from its seed alone.
+	 * @param seed - the seed of the deal
+	 */
+	public Game(final long seed) {
+		this(new Random(seed));
+	}
+
+	private Game(final Random random) {
+		this(shuffledDeck(random));
+	}
+
+	/**
+	 * Lays out the given deal on an empty board.
+	 */
+	private Game(final byte[] deal) {
+		System.arraycopy(deal, 0, this.deal, 0, DECK_SIZE);
 
 		for (int i = 0; i < 8; i++) {
-			board.add(cards.stream().skip(i * 5).limit(5).collect(Collectors.toCollection(ArrayList::new)));
+			for (int j = 0; j < 5; j++) {
+				push(i, deal[i * 5 + j]);
+			}
 		}
 
 		for (int i = 0; i < 7; i++) {
-			topBoard.add(-1);
+			topBoard[i] = -1;
+		}
+	}
+
+	private static byte[] shuffledDeck(final Random random) {
+		final List<Integer> cards = new ArrayList<>();
+		for (int t = 0; t < CARD_TYPES.length; t++) {
+			for (int i = 0; i < CARD_COUNTS[t]; i++) {
+				cards.add(CARD_TYPES[t]);
+			}
+		}
+		Collections.shuffle(cards, random);
+
+		final byte[] deal = new byte[DECK_SIZE];
+		for (int i = 0; i < DECK_SIZE; i++) {
+			deal[i] = (byte) (int) cards.get(i);
+		}
+		return deal;
+	}
+
+	/**
+	 * Deals the game with the given deal ID.
+	 * @param dealId - the ID of the deal, as given by {@link #dealId()}
+	 * @return the dealt game
+	 * @throws IllegalArgumentException if the ID is not between 0 and {@link #DEAL_COUNT} - 1
+	 */
+	public static Game fromDealId(final BigInteger dealId) {
+		if (dealId.signum() < 0 || dealId.compareTo(DEAL_COUNT) >= 0) throw new IllegalArgumentException("Deal ID (" + dealId + ") out of range");
+
+		final byte[] deal = new byte[DECK_SIZE];
+		final int[] counts = CARD_COUNTS.clone();
+		BigInteger rank = dealId;
+		BigInteger total = DEAL_COUNT;
+		for (int i = 0, remaining = DECK_SIZE; i < DECK_SIZE; i++, remaining--) {
+			// Find the card whose block of deals contains the rank
+			for (int t = 0; t < counts.length; t++) {
+				if (counts[t] == 0) continue;
+
+				final BigInteger block = total.multiply(BigInteger.valueOf(counts[t])).divide(BigInteger.valueOf(remaining));
+				if (rank.compareTo(block) < 0) {
+					deal[i] = (byte) CARD_TYPES[t];
+					counts[t]--;
+					total = block;
+					break;
+				}
+				rank = rank.subtract(block);
+			}
+		}
+
+		return new Game(deal);
+	}
+
+	/**
+	 * Gives the ID of the deal this game started from, which is unique to the deal and can be turned
+	 * back into the deal with {@link #fromDealId(BigInteger)}. IDs range from 0 to
+	 * {@link #DEAL_COUNT} - 1, and take up to 146 bits.
+	 * @return the ID of the deal
+	 */
+	public BigInteger dealId() {
+		final int[] counts = CARD_COUNTS.clone();
+		BigInteger rank = BigInteger.ZERO;
+		BigInteger total = DEAL_COUNT;
+		for (int i = 0, remaining = DECK_SIZE; i < DECK_SIZE; i++, remaining--) {
+			final int type = Arrays.binarySearch(CARD_TYPES, deal[i]);
+
+			// Skip the deals that start with any lower card at this position
+			for (int t = 0; t < type; t++) {
+				if (counts[t] > 0) rank = rank.add(total.multiply(BigInteger.valueOf(counts[t])).divide(BigInteger.valueOf(remaining)));
+			}
+
+			total = total.multiply(BigInteger.valueOf(counts[type])).divide(BigInteger.valueOf(remaining));
+			counts[type]--;
+		}
+		return rank;
+	}
+
+	/**
+	 * @return the number of distinct orderings of <i>n</i> cards with the given number of each card
+	 */
+	private static BigInteger permutations(final int n, final int[] counts) {
+		BigInteger ret = BigInteger.ONE;
+		for (int i = 2; i <= n; i++) {
+			ret = ret.multiply(BigInteger.valueOf(i));
+		}
+		for (final int count : counts) {
+			for (int i = 2; i <= count; i++) {
+				ret = ret.divide(BigInteger.valueOf(i));
+			}
 		}
+		return ret;
+	}
+
+	/**
+	 * Creates a copy of the given game, such that moves made on either game do not affect the
+	 * other. The copy starts with no moves to undo.
+	 * @param game - the game to copy
+	 */
+	public Game(final Game game) {
+		System.arraycopy(game.deal, 0, deal, 0, deal.length);
+		System.arraycopy(game.board, 0, board, 0, board.length);
+		System.arraycopy(game.heights, 0, heights, 0, heights.length);
+		System.arraycopy(game.topBoard, 0, topBoard, 0, topBoard.length);
+		System.arraycopy(game.runStarts, 0, runStarts, 0, runStarts.length);
+		hash = game.hash;
+
+		System.arraycopy(game.columnHashes, 0, columnHashes, 0, columnHashes.length);
+		sideboardHash = game.sideboardHash;
+		completedHash = game.completedHash;
+
+		System.arraycopy(game.openDragons, 0, openDragons, 0, openDragons.length);
+		sideboardCards = game.sideboardCards;
+		cardsLeft = game.cardsLeft;
+		autoFillLimit = game.autoFillLimit;
 	}
 
 	public int cardsIn(final int slot) {
-		return board.get(slot).size();
+		return heights[slot];
 	}
 
 	public int cardAt(final int slot, final int index) {
-		return board.get(slot).get(index);
+		if (index < 0 || index >= heights[slot]) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + heights[slot]);
+
+		return board[slot * STRIDE + index];
 	}
 
 	public int sideboardCard(final int slot) {
 		if (slot >= 3) throw new IndexOutOfBoundsException();
 
-		return topBoard.get(slot);
+		return topBoard[slot];
 	}
 
 	public int highestComplete(final int color) {
 		if (color < 0) throw new IndexOutOfBoundsException();
 
-		final int card = topBoard.get(color + 4);
-		return card < 0 ? -1 : card & 0b1111;
+		final int card = topBoard[color + 4];
+		return card < 0 ? -1 : VALUES[card];
 	}
 
 	public boolean rose() {
-		return topBoard.get(3) == ROSE;
+		return topBoard[3] == ROSE;
 	}
 
 	public int maxAutoFill() {
-		int minValue = Integer.MAX_VALUE;
-		for (int color = 0; color < 3; color++) {
-			final int n = highestComplete(color) + 1;
-			if (n < minValue) {
-				minValue = n;
-			}
-		}
+		return autoFillLimit;
+	}
 
-		if (minValue < 1) return 1;
-		return minValue;
+	/**
+	 * Gives the number of cards that can be dragged from the bottom of a main board slot at once,
+	 * i.e. the length of the run at the bottom of the slot. This is a constant time operation.
+	 * @param slot - the main board slot
+	 * @return the number of cards, or 0 if the slot is empty
+	 */
+	public int movableCount(final int slot) {
+		final int height = heights[slot];
+		return height == 0 ? 0 : height - runStarts[slot * STRIDE + height - 1];
+	}
+
+	/**
+	 * @return the number of cards left on the main board
+	 */
+	public int cardsRemaining() {
+		return cardsLeft;
+	}
+
+	/**
+	 * @return the number of empty sideboard slots
+	 */
+	public int freeSideboardSlots() {
+		return 3 - sideboardCards;
 	}
 
 	/**
@@ -113,80 +495,139 @@ public class Game {
 			}
 
 			// Attempting to move a solved dragon
-			if ((bottomCard & 0b1001111) == 0b1001111) {
+			if (IS_SOLVED[bottomCard]) {
 				return false;
 			}
 		} else {
 			bottomCard = cardAt(srcSlot, srcIndex);
 			if (!canDrag(srcSlot, srcIndex)) return false;
 
-			numCards = cardsIn(srcSlot) - srcIndex; // Calculate the number of cards to be moved.
+			numCards = heights[srcSlot] - srcIndex; // Calculate the number of cards to be moved.
 		}
 
 		// Cannot move more than one card to the top bar
 		if (destIndex < 0 && numCards > 1) return false;
 
 		if (destIndex == -2) {
-			if (bottomCard != ROSE) { // The rose can always be completed if it has not yet
-										// been
-				if ((bottomCard & 0b1001111) == DRAGON_MOD) return false; // Cannot complete dragons
-
-				final int color = bottomCard >> 4 & 0b11;
-
-				// Completed cards must be one higher than the current complete card.
-				if (highestComplete(color) != (bottomCard & 0b1111) - 1) return false;
-			}
+			if (!canComplete(bottomCard)) return false;
 		} else if (destIndex == -1) {
 			if (sideboardCard(destSlot) >= 0) return false;
 		} else {
-			if (cardsIn(destSlot) != 0) {
-				final int below = cardAt(destSlot, cardsIn(destSlot) - 1);
+			if (heights[destSlot] != 0 && !canStack(bottomCard, board[destSlot * STRIDE + heights[destSlot] - 1])) return false;
+		}
 
-				// Cannot place dragons on any card
-				if ((bottomCard & 0b1001111) == DRAGON_MOD) return false;
+		// Record the move in the journal. Moves to the main board record the index the cards end up
+		// at, and moves to the completed slots record the top board slot and the card that was
+		// completed there before, so that the move can be undone.
+		if (destIndex == -2) {
+			final int completedSlot = COMPLETED_SLOTS[bottomCard];
+			record(MOVE, srcSlot, srcIndex, completedSlot, -2, topBoard[completedSlot]);
+		} else {
+			record(MOVE, srcSlot, srcIndex, destSlot, destIndex < 0 ? -1 : heights[destSlot], numCards);
+		}
 
-				// Cannot place if numbers do not match
-				if ((below & 0b1111) - 1 != (bottomCard & 0b1111)) return false;
+		transfer(srcSlot, srcIndex, destSlot, destIndex);
+		return true;
+	}
 
-				// Cannot place matching colors on top of each other.
-				if ((below & 0b110000) == (bottomCard & 0b110000)) return false;
-			}
-		}
+	/**
+	 * Moves the cards from the source position to the destination without checking that the move is
+	 * allowed or recording it, with parameters as in {@link #move(int, int, int, int)}.
+	 */
+	private void transfer(final int srcSlot, final int srcIndex, final int destSlot, final int destIndex) {
+		final int bottomCard = srcIndex == -1 ? topBoard[srcSlot] : board[srcSlot * STRIDE + srcIndex];
+		final int numCards = srcIndex == -1 ? 1 : heights[srcSlot] - srcIndex;
 
-		final List<Integer> moving = new ArrayList<>();
+		// Take the cards off of the source position. A move out of the main board only needs to
+		// shorten the column, since the cards stay in the array until they are overwritten.
 		if (srcIndex == -1) {
-			// Clear the slot and add the cleared value to the moving list
-			moving.add(topBoard.set(srcSlot, -1));
+			setTop(srcSlot, -1);
 		} else {
-			final List<Integer> slot = board.get(srcSlot);
-			while (slot.size() > srcIndex) {
-				moving.add(slot.remove(srcIndex));
-			}
+			truncate(srcSlot, srcIndex);
 		}
 
 		if (destIndex == -2) {
-			if (bottomCard == ROSE) {
-				topBoard.set(3, ROSE);
-			} else {
-				topBoard.set((bottomCard >> 4 & 0b11) + 4, bottomCard);
-			}
+			setTop(COMPLETED_SLOTS[bottomCard], bottomCard);
 		} else if (destIndex == -1) {
-			topBoard.set(destSlot, moving.get(0));
+			setTop(destSlot, bottomCard);
+		} else if (srcIndex == -1) {
+			push(destSlot, bottomCard);
 		} else {
-			board.get(destSlot).addAll(moving);
+			final int srcStart = srcSlot * STRIDE + srcIndex;
+			for (int i = 0; i < numCards; i++) {
+				push(destSlot, board[srcStart + i]);
+			}
 		}
+	}
 
-		return true;
+	/**
+	 * Evaluates whether or not the given card can be moved to the completed slots.
+	 */
+	private boolean canComplete(final int card) {
+		// Cannot complete dragons, and completed cards must be one higher than the current complete
+		// card. The rose can always be completed, since its slot is empty until it is.
+		final int slot = COMPLETED_SLOTS[card];
+		return slot >= 0 && topBoard[slot] == COMPLETES_ON[card];
+	}
+
+	/**
+	 * Evaluates whether or not the given card can be placed on top of the <i>below</i> card in a
+	 * main board slot.
+	 */
+	private static boolean canStack(final int card, final int below) {
+		return STACKS[card << 7 | below];
+	}
+
+	/**
+	 * Evaluates whether or not the dragons of the given color can be collected, like
+	 * {@link #canCollectDragons(int)} but without finding where they are.
+	 */
+	public boolean canCollect(final int color) {
+		return openDragons[color] >= 4 && dragonSlot((color | 0b100) << 4) >= 0;
 	}
 
 	public DragonCollectionResult canCollectDragons(final int color) {
+		// Less than four dragons open
+		if (openDragons[color] < 4) return null;
+
 		// The value of the dragons of the given color
 		final int dragon = (color | 0b100) << 4;
 
-		// Check open top board slots
+		final int openIndex = dragonSlot(dragon);
+
+		// If there are no open top board slots
+		if (openIndex < 0) return null;
+
+		final int[] matches = new int[4];
+		int numMatches = 0;
+
+		// Count the number of dragons at the bottom of the main board
+		for (int n = 0; n < 8 && numMatches < 4; n++) {
+			if (heights[n] > 0 && board[n * STRIDE + heights[n] - 1] == dragon) {
+				matches[numMatches++] = n;
+			}
+		}
+
+		// Check the sideboard if there are less than four open dragons in the main board
+		for (int n = 0; n < 3 && numMatches < 4; n++) {
+			if (topBoard[n] == dragon) {
+				matches[numMatches++] = n + 8; // Top bar values range from 8 to 10
+			}
+		}
+
+		return new DragonCollectionResult(matches, openIndex, color);
+	}
+
+	/**
+	 * Finds the sideboard slot that the given dragons would be collected into.
+	 * @param dragon - the dragon card
+	 * @return a sideboard slot that is empty or already holds one of the dragons, or -1 if there is
+	 *         none
+	 */
+	private int dragonSlot(final int dragon) {
 		int openIndex = -1;
 		for (int i = 0; i < 3; i++) {
-			final int sideboardCard = sideboardCard(i);
+			final int sideboardCard = topBoard[i];
 
 			// Can use an empty space or a space with the correct dragon in it already
 			if (sideboardCard < 0 || sideboardCard == dragon) {
@@ -194,101 +635,263 @@ public class Game {
 				if (sideboardCard == dragon) break;
 			}
 		}
+		return openIndex;
+	}
 
-		// If there are no open top board slots
-		if (openIndex < 0) return null;
+	public void collectDragons(final DragonCollectionResult dcr) {
+		// The slots are packed into 4 bits each, so that the collection fits in one journal record
+		int slots = 0;
+		for (int i = dcr.slots.length - 1; i >= 0; i--) {
+			slots = slots << 4 | dcr.slots[i];
+		}
+		record(DRAGONS, dcr.color, slots, dcr.destinationSlot, dcr.slots.length, 0);
 
-		final Set<Integer> matches = new HashSet<>();
+		removeDragons(dcr.color, slots, dcr.destinationSlot, dcr.slots.length);
+	}
 
-		// Count the number of dragons at the bottom of the main board
-		for (int n = 0; n < board.size(); n++) {
-			if (cardsIn(n) > 0 && cardAt(n, cardsIn(n) - 1) == dragon) {
-				matches.add(n);
-				if (matches.size() >= 4) break;
+	/**
+	 * Collects dragons without recording it in the journal.
+	 * @param slots - the slots of the dragons, packed into 4 bits each, lowest first
+	 * @param numSlots - the number of packed slots
+	 */
+	private void removeDragons(final int color, final int slots, final int destinationSlot, final int numSlots) {
+		// Remove dragons from board
+		for (int i = 0; i < numSlots; i++) {
+			final int slot = slots >> 4 * i & 0b1111;
+			if (slot < 8) { // Main board
+				truncate(slot, heights[slot] - 1);
+			} else { // Sideboard
+				setTop(slot - 8, -1);
 			}
 		}
 
-		if (matches.size() < 4) { // If there are less than four open dragons in the main board
-			// Check the sideboard
-			for (int n = 0; n < 3; n++) {
-				if (sideboardCard(n) == dragon) {
-					matches.add(n + 8); // Top bar values range from 8 to 10
-					if (matches.size() >= 4) break;
+		setTop(destinationSlot, 0b1001111 | color << 4);
+	}
+
+	/**
+	 * Undoes the last move or dragon collection that has not been undone. This takes constant time.
+	 * @return whether or not there was anything to undo
+	 */
+	public boolean undo() {
+		if (journalSize == 0) return false;
+
+		journalSize -= RECORD_SIZE;
+		final int[] r = journal;
+		final int i = journalSize;
+
+		if (r[i] == DRAGONS) {
+			final int color = r[i + 1], slots = r[i + 2], destinationSlot = r[i + 3], numSlots = r[i + 4];
+			final int dragon = (color | 0b100) << 4;
+
+			// Empty the destination first, as it may have held one of the dragons
+			setTop(destinationSlot, -1);
+			for (int n = numSlots - 1; n >= 0; n--) {
+				final int slot = slots >> 4 * n & 0b1111;
+				if (slot < 8) {
+					push(slot, dragon);
+				} else {
+					setTop(slot - 8, dragon);
 				}
 			}
+		} else {
+			final int srcSlot = r[i + 1], srcIndex = r[i + 2], destSlot = r[i + 3], destIndex = r[i + 4], extra = r[i + 5];
 
-			// Less than four dragons open
-			if (matches.size() < 4) return null;
+			if (destIndex < 0) {
+				// A single card moved to the sideboard or the completed slots
+				final int card = topBoard[destSlot];
+				setTop(destSlot, destIndex == -2 ? extra : -1);
+				if (srcIndex == -1) {
+					setTop(srcSlot, card);
+				} else {
+					push(srcSlot, card);
+				}
+			} else if (srcIndex == -1) {
+				final int card = board[destSlot * STRIDE + destIndex];
+				truncate(destSlot, destIndex);
+				setTop(srcSlot, card);
+			} else {
+				final int destStart = destSlot * STRIDE + destIndex;
+				for (int n = 0; n < extra; n++) {
+					push(srcSlot, board[destStart + n]);
+				}
+				truncate(destSlot, destIndex);
+			}
 		}
 
-		return new DragonCollectionResult(matches.stream().mapToInt(i -> i).toArray(), openIndex, color);
+		return true;
 	}
 
-	public void collectDragons(final DragonCollectionResult dcr) {
-		// Remove dragons from board
-		for (final Integer slot : dcr.slots) {
-			if (slot < 8) { // Main board
-				final List<Integer> slotList = board.get(slot);
-				slotList.remove(slotList.size() - 1);
-			} else { // Sideboard
-				topBoard.set(slot - 8, -1);
-			}
+	/**
+	 * Redoes the last move or dragon collection that was undone, if no other move has been made
+	 * since.
+	 * @return whether or not there was anything to redo
+	 */
+	public boolean redo() {
+		if (journalSize == journalEnd) return false;
+
+		final int[] r = journal;
+		final int i = journalSize;
+		journalSize += RECORD_SIZE;
+
+		if (r[i] == DRAGONS) {
+			removeDragons(r[i + 1], r[i + 2], r[i + 3], r[i + 4]);
+		} else {
+			transfer(r[i + 1], r[i + 2], r[i + 3], r[i + 4]);
 		}
+		return true;
+	}
+
+	public boolean canUndo() {
+		return journalSize > 0;
+	}
 
-		topBoard.set(dcr.destinationSlot, 0b1001111 | dcr.color << 4);
+	public boolean canRedo() {
+		return journalSize < journalEnd;
 	}
 
 	/**
-	 * Gives the slot index of all cards to autofill. Does not move any cards.
+	 * Gives a mark for the current point in the move history, which can be passed to
+	 * {@link #undoTo(int)}.
+	 * @return the number of moves that can currently be undone
+	 */
+	public int historySize() {
+		return journalSize / RECORD_SIZE;
+	}
+
+	/**
+	 * Undoes moves until there are only the given number of moves that can be undone.
+	 * @param mark - a value previously returned by {@link #historySize()}
+	 */
+	public void undoTo(final int mark) {
+		if (mark < 0 || mark > historySize()) throw new IllegalArgumentException("Mark (" + mark + ") out of range");
+
+		while (journalSize > mark * RECORD_SIZE) {
+			undo();
+		}
+	}
+
+	/**
+	 * Adds a record to the journal, discarding any moves that could have been redone.
+	 */
+	private void record(final int type, final int a, final int b, final int c, final int d, final int e) {
+		if (journalSize + RECORD_SIZE > journal.length) {
+			journal = Arrays.copyOf(journal, journal.length * 2);
+		}
+
+		final int[] r = journal;
+		final int i = journalSize;
+		r[i] = type;
+		r[i + 1] = a;
+		r[i + 2] = b;
+		r[i + 3] = c;
+		r[i + 4] = d;
+		r[i + 5] = e;
+
+		journalSize += RECORD_SIZE;
+		journalEnd = journalSize;
+	}
+
+	/**
+	 * Gives the slot index of all cards to autofill. Does not move any cards.<br>
+	 * The same rule applies to the main board and the sideboard: a card is autofilled if it can be
+	 * completed now, and is the rose or no higher than {@link #maxAutoFill()}. A sideboard card that
+	 * cannot be completed yet is never given, and neither is a rose in the sideboard, as
+	 * {@link #move(int, int, int, int)} does not move it out. Every card given can therefore be
+	 * moved to the completed slots.
 	 * @return the slot indices the cards are in (0 to 7, 8 to 10 for sideboard slots)
 	 */
 	public Set<Integer> autoFill() {
 		final Set<Integer> ret = new HashSet<>();
 
 		// Iterate through the main board slots
-		for (int i = 0; i < board.size(); i++) {
-			if (cardsIn(i) <= 0) continue; // Cannot autofill from an empty slot
-
-			final int card = cardAt(i, cardsIn(i) - 1);
-
-			if (card == ROSE) { // Rose can always be autofilled
-				ret.add(i);
-			} else if ((card & 0b1001111) != DRAGON_MOD) { // Do not autofill dragons
-				// The number value of the card
-				final int value = card & 0b1111;
-				if (value <= maxAutoFill()) {
-					// if (value != 1) return i;
-
-					final int color = card >> 4 & 0b11;
-					if (highestComplete(color) == value - 1) ret.add(i);
-				}
-			}
+		for (int i = 0; i < 8; i++) {
+			if (heights[i] > 0 && canAutoFill(board[i * STRIDE + heights[i] - 1])) ret.add(i);
 		}
 
 		// Autofill from sideboard
 		for (int i = 0; i < 3; i++) {
-			final int card = sideboardCard(i);
+			if (canAutoFillSideboard(topBoard[i])) ret.add(i | 0b1000);
+		}
 
-			if (card == ROSE) { // Rose can always be autofilled
-				ret.add(i | 0b1000);
-			} else if ((card & DRAGON_MOD) != DRAGON_MOD) { // Do not autofill dragons
-				final int value = card & 0b1111;
-				if (value <= maxAutoFill()) {
-					if (value != 1) ret.add(i | 0b1000);
+		return ret;
+	}
 
-					final int color = card >> 4 & 0b11;
-					if (highestComplete(color) >= 0) ret.add(i | 0b1000);
+	/**
+	 * Moves every card that can be autofilled to the completed slots, including the cards that can
+	 * only be autofilled once others have been, until none are left. This is the whole cascade that
+	 * repeatedly moving a card given by {@link #autoFill()} would make, worked out in one call and
+	 * without allocating any memory. Each move is recorded in the journal, so it can be undone like
+	 * any other.<br>
+	 * The moves are written to the given array in the order they were made, laid out as in
+	 * {@link #generateMoves(int[])}.
+	 * @param out - the array to write to, at least {@link #SETTLE_BUFFER_SIZE} long
+	 * @return the number of moves made
+	 */
+	public int settle(final int[] out) {
+		if (out.length < SETTLE_BUFFER_SIZE) throw new IllegalArgumentException("Settle buffer too small (" + out.length + " < " + SETTLE_BUFFER_SIZE + ")");
+
+		int n = 0;
+		boolean moved;
+		do {
+			moved = false;
+
+			// A slot may be autofilled from more than once, as each card uncovers the one above it
+			for (int src = 0; src < 8; src++) {
+				int height;
+				while ((height = heights[src]) > 0 && canAutoFill(board[src * STRIDE + height - 1])) {
+					n = complete(out, n, src, height - 1, board[src * STRIDE + height - 1]);
+					moved = true;
 				}
 			}
-		}
 
-		return ret;
+			for (int src = 0; src < 3; src++) {
+				final int card = topBoard[src];
+				if (canAutoFillSideboard(card)) {
+					n = complete(out, n, src, -1, card);
+					moved = true;
+				}
+			}
+		} while (moved);
+
+		return n / MOVE_SIZE;
+	}
+
+	/**
+	 * Moves a card that can be completed to the completed slots, recording the move in the journal
+	 * and writing it to the array.
+	 * @return the index in the array after the move
+	 */
+	private int complete(final int[] out, final int n, final int srcSlot, final int srcIndex, final int card) {
+		final int completedSlot = COMPLETED_SLOTS[card];
+		record(MOVE, srcSlot, srcIndex, completedSlot, -2, topBoard[completedSlot]);
+		transfer(srcSlot, srcIndex, 0, -2);
+		return putMove(out, n, srcSlot, srcIndex, completedSlot(card), -2);
+	}
+
+	/**
+	 * Evaluates whether or not the given card is autofilled, i.e. it is the rose, or a numbered card
+	 * that can be completed and is no higher than {@link #maxAutoFill()}.
+	 * @param card - the card, or -1 for none
+	 */
+	private boolean canAutoFill(final int card) {
+		if (card < 0 || !canComplete(card)) return false;
+
+		return card == ROSE || VALUES[card] <= autoFillLimit;
+	}
+
+	/**
+	 * Evaluates whether or not the given card is autofilled from the sideboard. The rose cannot be,
+	 * as {@link #move(int, int, int, int)} does not move it out of the sideboard.
+	 * @param card - the card, or -1 for none
+	 */
+	private boolean canAutoFillSideboard(final int card) {
+		return card >= 0 && !IS_SOLVED[card] && canAutoFill(card);
 	}
 
 	/**
 	 * Evaluates whether or not the card at the given position is able to be dragged, i.e. are all
 	 * cards below it in a pattern such that each card is one less that the card above it, and that
-	 * neighbouring cards are of different colors?
+	 * neighbouring cards are of different colors? This is a constant time operation.
 	 * @param slot - The slot that the card is in, as in {@link #move(int, int, int, int)}
 	 * @param index - The index of the card, as in {@link #move(int, int, int, int)}
 	 * @return Whether or not the given card can be dragged.
@@ -297,25 +900,276 @@ public class Game {
 		if (index == -2) {
 			return false;
 		} else if (index == -1) {
-			return (topBoard.get(slot) & 0b1001111) != 0b1001111;
+			final int card = topBoard[slot];
+			return card >= 0 && !IS_SOLVED[card];
 		} else {
-			int value = cardAt(slot, index);
-			for (int i = index + 1; i < cardsIn(slot); i++) {
-				final int n = cardAt(slot, i);
+			if (index < 0 || index >= heights[slot]) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + heights[slot]);
 
-				// Check that every card is one more than the card below it and that no two
-				// consecutive cards are the same color.
-				if ((value & DRAGON_MOD) > 0 || (value & 0b1111) - 1 != (n & 0b1111) || (value & 0b110000) == (n & 0b110000)) return false;
+			return index >= runStarts[slot * STRIDE + heights[slot] - 1];
+		}
+	}
 
-				value = n;
+	/**
+	 * Evaluates whether or not a card can be dragged along with the card below it, i.e. the card is
+	 * one more than the card below it and they are not the same color.
+	 */
+	private static boolean isLinked(final int card, final int below) {
+		return LINKS[card << 7 | below];
+	}
+
+	/**
+	 * Gives the 64-bit Zobrist hash of the current position. The hash is kept up to date by every
+	 * move, so this is a constant time operation. Equal games always have equal hashes.
+	 * @return the hash of the position
+	 */
+	public long zobristHash() {
+		return hash;
+	}
+
+	/**
+	 * Gives a 64-bit hash of the current position that ignores the order of the main board slots
+	 * and of the sideboard slots, since positions that only differ by that order play the same. This
+	 * takes a few operations per main board slot.<br>
+	 * Unlike {@link #zobristHash()}, games with equal canonical hashes are not necessarily
+	 * {@link #equals(Object) equal}, as their slots may be in different orders.
+	 * @return the canonical hash of the position
+	 */
+	public long canonicalHash() {
+		final long[] sorted = sortedColumnHashes;
+		System.arraycopy(columnHashes, 0, sorted, 0, 8);
+
+		// Insertion sort, which is the fastest for eight values
+		for (int i = 1; i < 8; i++) {
+			final long value = sorted[i];
+			int j = i;
+			while (j > 0 && sorted[j - 1] > value) {
+				sorted[j] = sorted[j - 1];
+				j--;
+			}
+			sorted[j] = value;
+		}
+
+		long ret = mix(completedHash + sideboardHash);
+		for (int i = 0; i < 8; i++) {
+			ret = mix(ret + sorted[i]);
+		}
+		return ret;
+	}
+
+	/**
+	 * The finalizer of MurmurHash3, used to combine the canonical hashes of each part of the board
+	 * such that the order of the parts matters.
+	 */
+	private static long mix(long h) {
+		h = (h ^ h >>> 33) * 0xFF51AFD7ED558CCDL;
+		h = (h ^ h >>> 33) * 0xC4CEB9FE1A85EC53L;
+		return h ^ h >>> 33;
+	}
+
+	@Override
+	public int hashCode() {
+		return (int) (hash ^ hash >>> 32);
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) return true;
+		if (!(obj instanceof Game)) return false;
+
+		final Game other = (Game) obj;
+		if (hash != other.hash || !Arrays.equals(heights, other.heights) || !Arrays.equals(topBoard, other.topBoard)) return false;
+
+		for (int s = 0; s < 8; s++) {
+			final int start = s * STRIDE;
+			if (!Arrays.equals(board, start, start + heights[s], other.board, start, start + heights[s])) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Writes every legal move in the current position to the given array, without allocating any
+	 * memory. Each move takes up {@link #MOVE_SIZE} entries, laid out as the (srcSlot, srcIndex,
+	 * destSlot, destIndex) arguments for {@link #move(int, int, int, int)}:
+	 * <ul>
+	 * <li>Moves to the main board give the index that the moved card will be at as the destIndex.
+	 * <li>Moves to the completed slots give a destSlot of 4 for the rose, or 5 + the color of the
+	 * card.
+	 * <li>Dragon collections give {@link #COLLECT_DRAGONS} as the srcIndex, the color of the dragons
+	 * as the srcSlot, the sideboard slot they would be moved to as the destSlot and -1 as the
+	 * destIndex. These are performed with {@link #collectDragons(DragonCollectionResult)}.
+	 * </ul>
+	 * Every legal move is given, including ones that have the same effect as each other, such as
+	 * moves to different empty slots.
+	 * @param out - the array to write to, at least {@link #MOVE_BUFFER_SIZE} long
+	 * @return the number of moves written
+	 */
+	public int generateMoves(final int[] out) {
+		if (out.length < MOVE_BUFFER_SIZE) throw new IllegalArgumentException("Move buffer too small (" + out.length + " < " + MOVE_BUFFER_SIZE + ")");
+
+		int n = 0;
+
+		// Dragon collections
+		for (int color = 0; color < 3; color++) {
+			if (openDragons[color] < 4) continue;
+
+			final int dest = dragonSlot((color | 0b100) << 4);
+			if (dest >= 0) n = putMove(out, n, color, COLLECT_DRAGONS, dest, -1);
+		}
+
+		// Moves from the main board
+		for (int src = 0; src < 8; src++) {
+			final int height = heights[src];
+			if (height == 0) continue;
+
+			final int start = src * STRIDE;
+			final int bottom = board[start + height - 1];
+
+			if (canComplete(bottom)) n = putMove(out, n, src, height - 1, completedSlot(bottom), -2);
+
+			for (int dest = 0; dest < 3; dest++) {
+				if (topBoard[dest] < 0) n = putMove(out, n, src, height - 1, dest, -1);
+			}
+
+			// Every card in the run at the bottom of the slot can be moved to another slot
+			for (int index = height - 1, runStart = runStarts[start + height - 1]; index >= runStart; index--) {
+				final int card = board[start + index];
+				for (int dest = 0; dest < 8; dest++) {
+					if (dest == src) continue;
+
+					final int destHeight = heights[dest];
+					if (destHeight == 0 || canStack(card, board[dest * STRIDE + destHeight - 1])) n = putMove(out, n, src, index, dest, destHeight);
+				}
+			}
+		}
+
+		// Moves from the sideboard
+		for (int src = 0; src < 3; src++) {
+			final int card = topBoard[src];
+			if (card < 0 || IS_SOLVED[card]) continue;
+
+			if (canComplete(card)) n = putMove(out, n, src, -1, completedSlot(card), -2);
+
+			for (int dest = 0; dest < 3; dest++) {
+				if (topBoard[dest] < 0) n = putMove(out, n, src, -1, dest, -1);
+			}
+
+			for (int dest = 0; dest < 8; dest++) {
+				final int destHeight = heights[dest];
+				if (destHeight == 0 || canStack(card, board[dest * STRIDE + destHeight - 1])) n = putMove(out, n, src, -1, dest, destHeight);
 			}
-			return true;
 		}
+
+		return n / MOVE_SIZE;
+	}
+
+	private static int putMove(final int[] out, final int n, final int srcSlot, final int srcIndex, final int destSlot, final int destIndex) {
+		out[n] = srcSlot;
+		out[n + 1] = srcIndex;
+		out[n + 2] = destSlot;
+		out[n + 3] = destIndex;
+		return n + MOVE_SIZE;
+	}
+
+	/**
+	 * @return the slot given for moves of the card to the completed slots in
+	 *         {@link #generateMoves(int[])}
+	 */
+	private static int completedSlot(final int card) {
+		return COMPLETED_SLOTS[card] + 1;
 	}
 
 	public boolean isWon() {
 		// The game is won when the main board is empty
-		return board.stream().allMatch(List::isEmpty);
+		return cardsLeft == 0;
+	}
+
+	/**
+	 * Adds a card to the bottom of a main board slot.
+	 */
+	private void push(final int slot, final int card) {
+		final int index = heights[slot]++;
+		final int position = slot * STRIDE + index;
+		if (index > 0) countDragon(board[position - 1], -1); // The card is covered
+		countDragon(card, 1);
+		cardsLeft++;
+
+		runStarts[position] = index > 0 && isLinked(board[position - 1], card) ? runStarts[position - 1] : (byte) index;
+		board[position] = (byte) card;
+		hash ^= BOARD_KEYS[position << 7 | card];
+		columnHashes[slot] ^= COLUMN_KEYS[index << 7 | card];
+	}
+
+	/**
+	 * Removes every card from the given index to the bottom of a main board slot. The removed cards
+	 * are left in {@link #board} until they are overwritten.
+	 */
+	private void truncate(final int slot, final int index) {
+		final int start = slot * STRIDE;
+		final int height = heights[slot];
+		if (index >= height) return;
+
+		for (int i = index; i < height; i++) {
+			final int card = board[start + i];
+			hash ^= BOARD_KEYS[start + i << 7 | card];
+			columnHashes[slot] ^= COLUMN_KEYS[i << 7 | card];
+		}
+		countDragon(board[start + height - 1], -1);
+		if (index > 0) countDragon(board[start + index - 1], 1); // The card is uncovered
+		cardsLeft -= height - index;
+
+		heights[slot] = (byte) index;
+	}
+
+	/**
+	 * Adds <i>delta</i> to the number of open dragons of the card's color if the card is a dragon.
+	 */
+	private void countDragon(final int card, final int delta) {
+		if (IS_DRAGON[card]) openDragons[COLORS[card]] += delta;
+	}
+
+	/**
+	 * Sets the card in a top board slot (0 - 2 for the sideboard, 3 for the rose, 4 - 6 for the
+	 * completed slots), or empties it if <i>card</i> is -1.
+	 */
+	private void setTop(final int slot, final int card) {
+		final int old = topBoard[slot];
+		if (slot < 3) {
+			if (old >= 0) {
+				countDragon(old, -1);
+				sideboardCards--;
+			}
+			if (card >= 0) {
+				countDragon(card, 1);
+				sideboardCards++;
+			}
+		}
+
+		if (old >= 0) {
+			hash ^= TOP_KEYS[slot << 7 | old];
+			if (slot < 3) {
+				sideboardHash -= SIDEBOARD_KEYS[old];
+			} else {
+				completedHash ^= TOP_KEYS[slot << 7 | old];
+			}
+		}
+		if (card >= 0) {
+			hash ^= TOP_KEYS[slot << 7 | card];
+			if (slot < 3) {
+				sideboardHash += SIDEBOARD_KEYS[card];
+			} else {
+				completedHash ^= TOP_KEYS[slot << 7 | card];
+			}
+		}
+		topBoard[slot] = (byte) card;
+
+		if (slot >= 4) {
+			// Cards can be autofilled up to one more than the lowest completed value, and 1s always can be
+			int min = Integer.MAX_VALUE;
+			for (int i = 4; i < 7; i++) {
+				min = Math.min(min, topBoard[i] < 0 ? 0 : VALUES[topBoard[i]] + 1);
+			}
+			autoFillLimit = Math.max(min, 1);
+		}
 	}
 
 	public String asString() {
@@ -323,9 +1177,9 @@ public class Game {
 
 		final char[] colors = {'R', 'G', 'B'};
 
-		for (int i = 0; i < topBoard.size(); i++) {
+		for (int i = 0; i < topBoard.length; i++) {
 			if (i == 3) ret.append("   ");
-			final Integer card = topBoard.get(i);
+			final int card = topBoard[i];
 			if (card < 0) {
 				ret.append("[] ");
 			} else if (card == ROSE) {
@@ -344,10 +1198,13 @@ public class Game {
 		}
 		ret.append('\n');
 
-		final int maxSize = board.stream().mapToInt(List::size).max().getAsInt();
+		int maxSize = 0;
+		for (int s = 0; s < 8; s++) {
+			maxSize = Math.max(maxSize, heights[s]);
+		}
 		for (int y = 0; y < maxSize; y++) {
-			for (int s = 0; s < board.size(); s++) {
-				final Integer card = board.get(s).size() <= y ? -1 : board.get(s).get(y);
+			for (int s = 0; s < 8; s++) {
+				final int card = heights[s] <= y ? -1 : board[s * STRIDE + y];
 				if (card < 0) {
 					ret.append("   ");
 				} else if (card == ROSE) {
@@ -0,0 +1,103 @@
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Finds the next move towards a win in the background. Each request searches a snapshot of the
+ * game on a thread of its own, so the game can keep changing while it runs, and interrupts the
+ * search of the previous request, whose result is never delivered.<br>
+ * Results are handed to a callback through the given executor, such as
+ * <code>Platform::runLater</code> to receive them on the JavaFX application thread. Requests and
+ * cancellations must all be made from the thread that the results are delivered on.
+ */
+public class HintService {
+
+	/**
+	 * The default time limit of a search for a hint, in milliseconds.
+	 */
+	public static final long DEFAULT_TIME_LIMIT = 2_000;
+
+	private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+		final Thread thread = new Thread(runnable, "Hint search");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		return thread;
+	});
+
+	private final Solver solver;
+	private final Executor callbackExecutor;
+	private final Consumer<int[]> onHint;
+
+	/**
+	 * The number of the latest request. Results of earlier requests are dropped.
+	 */
+	private volatile long generation;
+	private Future<?> search;
+
+	/**
+	 * @param callbackExecutor - runs the callback, e.g. <code>Platform::runLater</code>
+	 * @param onHint - called with the hint for each request that is not cancelled, as the
+	 *        {@link Solution#MOVE_SIZE} entries of a move in {@link Solution#moves}, or with
+	 *        <code>null</code> if no win was found
+	 */
+	public HintService(final Executor callbackExecutor, final Consumer<int[]> onHint) {
+		this(callbackExecutor, onHint, DEFAULT_TIME_LIMIT);
+	}
+
+	/**
+	 * @param callbackExecutor - runs the callback, e.g. <code>Platform::runLater</code>
+	 * @param onHint - called with the hint for each request that is not cancelled, as the
+	 *        {@link Solution#MOVE_SIZE} entries of a move in {@link Solution#moves}, or with
+	 *        <code>null</code> if no win was found
+	 * @param timeLimit - the maximum time to search for each hint, in milliseconds
+	 */
+	public HintService(final Executor callbackExecutor, final Consumer<int[]> onHint, final long timeLimit) {
+		this.callbackExecutor = callbackExecutor;
+		this.onHint = onHint;
+		solver = new Solver(Solver.DEFAULT_MAX_NODES, timeLimit);
+	}
+
+	/**
+	 * Starts searching for a hint for the given game, cancelling any search that is running.
+	 * @param game - the game to find a hint for. It is copied, so it may be changed as soon as this
+	 *        returns.
+	 */
+	public void request(final Game game) {
+		final Game snapshot = new Game(game);
+		final long id = ++generation;
+
+		if (search != null) search.cancel(true);
+		search = executor.submit(() -> {
+			final Solution solution = solver.findSolution(snapshot);
+			if (generation != id) return;
+
+			final int[] hint = solution.isSolved() && solution.length() > 0 ? Arrays.copyOf(solution.moves, Solution.MOVE_SIZE) : null;
+			callbackExecutor.execute(() -> {
+				// The game may have changed while the result was being handed over
+				if (generation == id) onHint.accept(hint);
+			});
+		});
+	}
+
+	/**
+	 * Cancels the current search, if any, so that its result is never delivered.
+	 */
+	public void cancel() {
+		generation++;
+		if (search != null) search.cancel(true);
+		search = null;
+	}
+
+	/**
+	 * Cancels the current search and stops the search thread. The service cannot be used
+	 * afterwards.
+	 */
+	public void shutdown() {
+		cancel();
+		executor.shutdownNow();
+	}
+
+}
@@ -0,0 +1,216 @@
+import java.util.Arrays;
+
+/**
+ * A one-to-one map between <code>int</code> keys and <code>int</code> values, like
+ * {@link BidirectionalHashMap} but without boxing: each entry takes two ints in the entry arrays and
+ * two in each of the open-addressed tables that look it up by key and by value. Adding an entry does
+ * not allocate unless the map has to grow.<br>
+ * As there is no <code>null</code>, lookups of absent keys and values return the missing key and
+ * missing value given to the constructor, which are -1 by default.
+ */
+public class IntIntBidirectionalMap extends AbstractBidirectionalMap {
+
+	@FunctionalInterface
+	public interface IntIntConsumer {
+		void accept(int key, int value);
+	}
+
+	private final int missingKey, missingValue;
+
+	private int[] keys, values;
+
+	public IntIntBidirectionalMap() {
+		this(16);
+	}
+
+	public IntIntBidirectionalMap(final int initialCapacity) {
+		this(initialCapacity, -1, -1);
+	}
+
+	/**
+	 * @param initialCapacity - the number of entries the map can hold before it grows
+	 * @param missingKey - returned by methods that look up a key that is not in the map
+	 * @param missingValue - returned by methods that look up a value that is not in the map
+	 */
+	public IntIntBidirectionalMap(final int initialCapacity, final int missingKey, final int missingValue) {
+		super(initialCapacity);
+		this.missingKey = missingKey;
+		this.missingValue = missingValue;
+		keys = new int[capacity()];
+		values = new int[capacity()];
+	}
+
+	/**
+	 * @return the value of the given key, or the missing value if it is not in the map
+	 */
+	public int get(final int key) {
+		final int entry = findKey(key);
+		return entry < 0 ? missingValue : values[entry];
+	}
+
+	/**
+	 * @return the key of the given value, or the missing key if it is not in the map
+	 */
+	public int getKey(final int value) {
+		final int entry = findValue(value);
+		return entry < 0 ? missingKey : keys[entry];
+	}
+
+	public boolean containsKey(final int key) {
+		return findKey(key) >= 0;
+	}
+
+	public boolean containsValue(final int value) {
+		return findValue(value) >= 0;
+	}
+
+	/**
+	 * Maps a key to a value, removing the previous entries of both.
+	 * @return the previous value of the key, or the missing value if it had none
+	 */
+	public int put(final int key, final int value) {
+		final int other = findValue(value);
+		if (other >= 0) {
+			if (keys[other] == key) return value;
+			removeEntry(other);
+		}
+
+		final int entry = findKey(key);
+		if (entry >= 0) {
+			final int old = values[entry];
+			unlinkValue(entry);
+			values[entry] = value;
+			linkValue(entry);
+			return old;
+		}
+
+		final int added = newEntry();
+		keys[added] = key;
+		values[added] = value;
+		link(added);
+		return missingValue;
+	}
+
+	/**
+	 * Maps a key to a value if the key is not in the map, removing the previous entry of the value.
+	 * @return the value of the key, or the missing value if it had none and was added
+	 */
+	public int putIfAbsent(final int key, final int value) {
+		final int entry = findKey(key);
+		if (entry >= 0) return values[entry];
+
+		put(key, value);
+		return missingValue;
+	}
+
+	/**
+	 * Maps a key to a value if the key is in the map, removing the previous entry of the value.
+	 * @return the previous value of the key, or the missing value if it is not in the map
+	 */
+	public int replace(final int key, final int value) {
+		if (findKey(key) < 0) return missingValue;
+
+		return put(key, value);
+	}
+
+	/**
+	 * Maps a key to a new value if it is mapped to the old value, removing the previous entry of
+	 * the new value.
+	 * @return whether or not the value was replaced
+	 */
+	public boolean replace(final int key, final int oldValue, final int newValue) {
+		final int entry = findKey(key);
+		if (entry < 0 || values[entry] != oldValue) return false;
+
+		put(key, newValue);
+		return true;
+	}
+
+	/**
+	 * @return the value of the removed key, or the missing value if it is not in the map
+	 */
+	public int remove(final int key) {
+		final int entry = findKey(key);
+		if (entry < 0) return missingValue;
+
+		final int old = values[entry];
+		removeEntry(entry);
+		return old;
+	}
+
+	/**
+	 * Removes a key if it is mapped to the given value.
+	 * @return whether or not the key was removed
+	 */
+	public boolean remove(final int key, final int value) {
+		final int entry = findKey(key);
+		if (entry < 0 || values[entry] != value) return false;
+
+		removeEntry(entry);
+		return true;
+	}
+
+	/**
+	 * @return the key of the removed value, or the missing key if it is not in the map
+	 */
+	public int removeValue(final int value) {
+		final int entry = findValue(value);
+		if (entry < 0) return missingKey;
+
+		final int old = keys[entry];
+		removeEntry(entry);
+		return old;
+	}
+
+	/**
+	 * Calls the action with each entry of the map, in no particular order. The map must not be
+	 * changed by the action.
+	 */
+	public void forEach(final IntIntConsumer action) {
+		for (int i = 0; i < size; i++) {
+			action.accept(keys[i], values[i]);
+		}
+	}
+
+	private int findKey(final int key) {
+		for (int i = mix(key) & mask, entry; (entry = keyTable[i]) != 0; i = i + 1 & mask) {
+			if (keys[entry - 1] == key) return entry - 1;
+		}
+		return -1;
+	}
+
+	private int findValue(final int value) {
+		for (int i = mix(value) & mask, entry; (entry = valueTable[i]) != 0; i = i + 1 & mask) {
+			if (values[entry - 1] == value) return entry - 1;
+		}
+		return -1;
+	}
+
+	@Override
+	protected int keyHash(final int entry) {
+		return mix(keys[entry]);
+	}
+
+	@Override
+	protected int valueHash(final int entry) {
+		return mix(values[entry]);
+	}
+
+	@Override
+	protected void moveEntry(final int from, final int to) {
+		keys[to] = keys[from];
+		values[to] = values[from];
+	}
+
+	@Override
+	protected void clearEntry(final int entry) {
+		// Nothing to release
+	}
+
+	@Override
+	protected void resizeEntries(final int capacity) {
+		keys = Arrays.copyOf(keys, capacity);
+		values = Arrays.copyOf(values, capacity);
+	}
+
+}
@@ -0,0 +1,231 @@
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A one-to-one map between <code>int</code> keys and object values, like
+ * {@link BidirectionalHashMap} but without boxing the keys or allocating an entry object: each entry
+ * takes an int and a reference in the entry arrays and an int in each of the open-addressed tables
+ * that look it up by key and by value. Values are compared with {@link Object#equals(Object)}, and
+ * may not be <code>null</code>.<br>
+ * Lookups of absent values return the missing key given to the constructor, which is -1 by
+ * default.
+ */
+public class IntObjectBidirectionalMap<V> extends AbstractBidirectionalMap {
+
+	@FunctionalInterface
+	public interface IntObjectConsumer<V> {
+		void accept(int key, V value);
+	}
+
+	private final int missingKey;
+
+	private int[] keys;
+	private Object[] values;
+
+	public IntObjectBidirectionalMap() {
+		this(16);
+	}
+
+	public IntObjectBidirectionalMap(final int initialCapacity) {
+		this(initialCapacity, -1);
+	}
+
+	/**
+	 * @param initialCapacity - the number of entries the map can hold before it grows
+	 * @param missingKey - returned by methods that look up a value that is not in the map
+	 */
+	public IntObjectBidirectionalMap(final int initialCapacity, final int missingKey) {
+		super(initialCapacity);
+		this.missingKey = missingKey;
+		keys = new int[capacity()];
+		values = new Object[capacity()];
+	}
+
+	/**
+	 * @return the value of the given key, or <code>null</code> if it is not in the map
+	 */
+	public V get(final int key) {
+		final int entry = findKey(key);
+		return entry < 0 ? null : value(entry);
+	}
+
+	/**
+	 * @return the key of the given value, or the missing key if it is not in the map
+	 */
+	public int getKey(final Object value) {
+		final int entry = findValue(value);
+		return entry < 0 ? missingKey : keys[entry];
+	}
+
+	public boolean containsKey(final int key) {
+		return findKey(key) >= 0;
+	}
+
+	public boolean containsValue(final Object value) {
+		return findValue(value) >= 0;
+	}
+
+	/**
+	 * Maps a key to a value, removing the previous entries of both.
+	 * @return the previous value of the key, or <code>null</code> if it had none
+	 */
+	public V put(final int key, final V value) {
+		Objects.requireNonNull(value);
+
+		final int other = findValue(value);
+		if (other >= 0) {
+			if (keys[other] == key) {
+				// An equal value, which has the same hash
+				final V old = value(other);
+				values[other] = value;
+				return old;
+			}
+			removeEntry(other);
+		}
+
+		final int entry = findKey(key);
+		if (entry >= 0) {
+			final V old = value(entry);
+			unlinkValue(entry);
+			values[entry] = value;
+			linkValue(entry);
+			return old;
+		}
+
+		final int added = newEntry();
+		keys[added] = key;
+		values[added] = value;
+		link(added);
+		return null;
+	}
+
+	/**
+	 * Maps a key to a value if the key is not in the map, removing the previous entry of the value.
+	 * @return the value of the key, or <code>null</code> if it had none and was added
+	 */
+	public V putIfAbsent(final int key, final V value) {
+		final int entry = findKey(key);
+		if (entry >= 0) return value(entry);
+
+		put(key, value);
+		return null;
+	}
+
+	/**
+	 * Maps a key to a value if the key is in the map, removing the previous entry of the value.
+	 * @return the previous value of the key, or <code>null</code> if it is not in the map
+	 */
+	public V replace(final int key, final V value) {
+		if (findKey(key) < 0) return null;
+
+		return put(key, value);
+	}
+
+	/**
+	 * Maps a key to a new value if it is mapped to the old value, removing the previous entry of
+	 * the new value.
+	 * @return whether or not the value was replaced
+	 */
+	public boolean replace(final int key, final V oldValue, final V newValue) {
+		final int entry = findKey(key);
+		if (entry < 0 || !values[entry].equals(oldValue)) return false;
+
+		put(key, newValue);
+		return true;
+	}
+
+	/**
+	 * @return the value of the removed key, or <code>null</code> if it is not in the map
+	 */
+	public V remove(final int key) {
+		final int entry = findKey(key);
+		if (entry < 0) return null;
+
+		final V old = value(entry);
+		removeEntry(entry);
+		return old;
+	}
+
+	/**
+	 * Removes a key if it is mapped to the given value.
+	 * @return whether or not the key was removed
+	 */
+	public boolean remove(final int key, final Object value) {
+		final int entry = findKey(key);
+		if (entry < 0 || !values[entry].equals(value)) return false;
+
+		removeEntry(entry);
+		return true;
+	}
+
+	/**
+	 * @return the key of the removed value, or the missing key if it is not in the map
+	 */
+	public int removeValue(final Object value) {
+		final int entry = findValue(value);
+		if (entry < 0) return missingKey;
+
+		final int old = keys[entry];
+		removeEntry(entry);
+		return old;
+	}
+
+	/**
+	 * Calls the action with each entry of the map, in no particular order. The map must not be
+	 * changed by the action.
+	 */
+	public void forEach(final IntObjectConsumer<? super V> action) {
+		for (int i = 0; i < size; i++) {
+			action.accept(keys[i], value(i));
+		}
+	}
+
+	private int findKey(final int key) {
+		for (int i = mix(key) & mask, entry; (entry = keyTable[i]) != 0; i = i + 1 & mask) {
+			if (keys[entry - 1] == key) return entry - 1;
+		}
+		return -1;
+	}
+
+	private int findValue(final Object value) {
+		if (value == null) return -1;
+
+		for (int i = mix(value.hashCode()) & mask, entry; (entry = valueTable[i]) != 0; i = i + 1 & mask) {
+			if (values[entry - 1].equals(value)) return entry - 1;
+		}
+		return -1;
+	}
+
+	@SuppressWarnings("unchecked")
+	private V value(final int entry) {
+		return (V) values[entry];
+	}
+
+	@Override
+	protected int keyHash(final int entry) {
+		return mix(keys[entry]);
+	}
+
+	@Override
+	protected int valueHash(final int entry) {
+		return mix(values[entry].hashCode());
+	}
+
+	@Override
+	protected void moveEntry(final int from, final int to) {
+		keys[to] = keys[from];
+		values[to] = values[from];
+	}
+
+	@Override
+	protected void clearEntry(final int entry) {
+		values[entry] = null;
+	}
+
+	@Override
+	protected void resizeEntries(final int capacity) {
+		keys = Arrays.copyOf(keys, capacity);
+		values = Arrays.copyOf(values, capacity);
+	}
+
+}
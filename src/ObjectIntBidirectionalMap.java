@@ -0,0 +1,226 @@
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A one-to-one map between object keys and <code>int</code> values, like
+ * {@link BidirectionalHashMap} but without boxing the values or allocating an entry object: each
+ * entry takes a reference and an int in the entry arrays and an int in each of the open-addressed
+ * tables that look it up by key and by value. Keys are compared with
+ * {@link Object#equals(Object)}, and may not be <code>null</code>.<br>
+ * Lookups of absent keys return the missing value given to the constructor, which is -1 by
+ * default.
+ */
+public class ObjectIntBidirectionalMap<K> extends AbstractBidirectionalMap {
+
+	private final int missingValue;
+
+	private Object[] keys;
+	private int[] values;
+
+	public ObjectIntBidirectionalMap() {
+		this(16);
+	}
+
+	public ObjectIntBidirectionalMap(final int initialCapacity) {
+		this(initialCapacity, -1);
+	}
+
+	/**
+	 * @param initialCapacity - the number of entries the map can hold before it grows
+	 * @param missingValue - returned by methods that look up a key that is not in the map
+	 */
+	public ObjectIntBidirectionalMap(final int initialCapacity, final int missingValue) {
+		super(initialCapacity);
+		this.missingValue = missingValue;
+		keys = new Object[capacity()];
+		values = new int[capacity()];
+	}
+
+	/**
+	 * @return the value of the given key, or the missing value if it is not in the map
+	 */
+	public int get(final Object key) {
+		final int entry = findKey(key);
+		return entry < 0 ? missingValue : values[entry];
+	}
+
+	/**
+	 * @return the key of the given value, or <code>null</code> if it is not in the map
+	 */
+	public K getKey(final int value) {
+		final int entry = findValue(value);
+		return entry < 0 ? null : key(entry);
+	}
+
+	public boolean containsKey(final Object key) {
+		return findKey(key) >= 0;
+	}
+
+	public boolean containsValue(final int value) {
+		return findValue(value) >= 0;
+	}
+
+	/**
+	 * Maps a key to a value, removing the previous entries of both.
+	 * @return the previous value of the key, or the missing value if it had none
+	 */
+	public int put(final K key, final int value) {
+		Objects.requireNonNull(key);
+
+		final int other = findValue(value);
+		if (other >= 0) {
+			if (keys[other].equals(key)) {
+				// An equal key, which has the same hash
+				keys[other] = key;
+				return value;
+			}
+			removeEntry(other);
+		}
+
+		final int entry = findKey(key);
+		if (entry >= 0) {
+			final int old = values[entry];
+			unlinkValue(entry);
+			values[entry] = value;
+			linkValue(entry);
+			return old;
+		}
+
+		final int added = newEntry();
+		keys[added] = key;
+		values[added] = value;
+		link(added);
+		return missingValue;
+	}
+
+	/**
+	 * Maps a key to a value if the key is not in the map, removing the previous entry of the value.
+	 * @return the value of the key, or the missing value if it had none and was added
+	 */
+	public int putIfAbsent(final K key, final int value) {
+		final int entry = findKey(key);
+		if (entry >= 0) return values[entry];
+
+		put(key, value);
+		return missingValue;
+	}
+
+	/**
+	 * Maps a key to a value if the key is in the map, removing the previous entry of the value.
+	 * @return the previous value of the key, or the missing value if it is not in the map
+	 */
+	public int replace(final K key, final int value) {
+		if (findKey(key) < 0) return missingValue;
+
+		return put(key, value);
+	}
+
+	/**
+	 * Maps a key to a new value if it is mapped to the old value, removing the previous entry of
+	 * the new value.
+	 * @return whether or not the value was replaced
+	 */
+	public boolean replace(final K key, final int oldValue, final int newValue) {
+		final int entry = findKey(key);
+		if (entry < 0 || values[entry] != oldValue) return false;
+
+		put(key, newValue);
+		return true;
+	}
+
+	/**
+	 * @return the value of the removed key, or the missing value if it is not in the map
+	 */
+	public int remove(final Object key) {
+		final int entry = findKey(key);
+		if (entry < 0) return missingValue;
+
+		final int old = values[entry];
+		removeEntry(entry);
+		return old;
+	}
+
+	/**
+	 * Removes a key if it is mapped to the given value.
+	 * @return whether or not the key was removed
+	 */
+	public boolean remove(final Object key, final int value) {
+		final int entry = findKey(key);
+		if (entry < 0 || values[entry] != value) return false;
+
+		removeEntry(entry);
+		return true;
+	}
+
+	/**
+	 * @return the key of the removed value, or <code>null</code> if it is not in the map
+	 */
+	public K removeValue(final int value) {
+		final int entry = findValue(value);
+		if (entry < 0) return null;
+
+		final K old = key(entry);
+		removeEntry(entry);
+		return old;
+	}
+
+	/**
+	 * Calls the action with each entry of the map, in no particular order. The map must not be
+	 * changed by the action.
+	 */
+	public void forEach(final ObjIntConsumer<? super K> action) {
+		for (int i = 0; i < size; i++) {
+			action.accept(key(i), values[i]);
+		}
+	}
+
+	private int findKey(final Object key) {
+		if (key == null) return -1;
+
+		for (int i = mix(key.hashCode()) & mask, entry; (entry = keyTable[i]) != 0; i = i + 1 & mask) {
+			if (keys[entry - 1].equals(key)) return entry - 1;
+		}
+		return -1;
+	}
+
+	private int findValue(final int value) {
+		for (int i = mix(value) & mask, entry; (entry = valueTable[i]) != 0; i = i + 1 & mask) {
+			if (values[entry - 1] == value) return entry - 1;
+		}
+		return -1;
+	}
+
+	@SuppressWarnings("unchecked")
+	private K key(final int entry) {
+		return (K) keys[entry];
+	}
+
+	@Override
+	protected int keyHash(final int entry) {
+		return mix(keys[entry].hashCode());
+	}
+
+	@Override
+	protected int valueHash(final int entry) {
+		return mix(values[entry]);
+	}
+
+	@Override
+	protected void moveEntry(final int from, final int to) {
+		keys[to] = keys[from];
+		values[to] = values[from];
+	}
+
+	@Override
+	protected void clearEntry(final int entry) {
+		keys[entry] = null;
+	}
+
+	@Override
+	protected void resizeEntries(final int capacity) {
+		keys = Arrays.copyOf(keys, capacity);
+		values = Arrays.copyOf(values, capacity);
+	}
+
+}
@@ -0,0 +1,166 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Searches for a sequence of moves that wins a {@link Game} like {@link Solver}, but on many
+ * threads at once. The first {@link #DEFAULT_SPLIT_DEPTH} levels of the search are split into a
+ * task per move, which the threads of a fork/join pool steal from each other, and below that each
+ * task is searched by a {@link Solver} of the thread running it. Every worker shares one
+ * {@link ConcurrentTranspositionTable}, so a position visited by one worker is not searched by
+ * another, and the workers stop as soon as any of them finds a win.<br>
+ * The node and time limits apply to the whole search rather than to each worker. Since the
+ * workers race each other, the solution found for a game can differ between searches. A parallel
+ * solver may be reused for multiple games, but must not search more than one game at once.
+ */
+public class ParallelSolver {
+
+	/**
+	 * The default number of levels of the search that are split into separate tasks.
+	 */
+	public static final int DEFAULT_SPLIT_DEPTH = 3;
+
+	/**
+	 * The default number of positions remembered by the shared transposition table, which is larger
+	 * than that of a single {@link Solver} as the workers together visit more positions.
+	 */
+	public static final int DEFAULT_TABLE_SIZE = 1 << 22;
+
+	/**
+	 * The state of one parallel search, shared by every worker.
+	 */
+	static final class Search {
+		final int maxNodes;
+		final long deadline;
+		final int splitDepth;
+		final ThreadLocal<Solver> workers;
+
+		final AtomicLong nodes = new AtomicLong();
+		final AtomicReference<int[]> solution = new AtomicReference<>();
+
+		volatile boolean stopped;
+		volatile boolean limitReached;
+		volatile boolean depthLimited;
+
+		Search(final int maxNodes, final long deadline, final int splitDepth, final ThreadLocal<Solver> workers) {
+			this.maxNodes = maxNodes;
+			this.deadline = deadline;
+			this.splitDepth = splitDepth;
+			this.workers = workers;
+		}
+
+		/**
+		 * Records a winning sequence of moves, unless another one already has been, and stops the
+		 * search.
+		 */
+		void solved(final int[] moves) {
+			solution.compareAndSet(null, moves);
+			stopped = true;
+		}
+	}
+
+	/**
+	 * A task that searches the position reached by a sequence of moves.
+	 */
+	static final class Subtree extends RecursiveAction {
+
+		private static final long serialVersionUID = -2715331740524410587L;
+
+		private final Search search;
+		private final Game game;
+		private final int[] prefix;
+		private final int depth;
+
+		Subtree(final Search search, final Game game, final int[] prefix, final int depth) {
+			this.search = search;
+			this.game = game;
+			this.prefix = prefix;
+			this.depth = depth;
+		}
+
+		@Override
+		protected void compute() {
+			if (search.stopped) return;
+
+			search.workers.get().searchSubtree(search, game, prefix, depth);
+		}
+	}
+
+	private final int maxNodes;
+	private final long timeLimit;
+	private final int splitDepth;
+
+	private final ForkJoinPool pool;
+	private final ConcurrentTranspositionTable visited;
+	private final ThreadLocal<Solver> workers;
+
+	/**
+	 * Creates a solver with the default limits that uses every available processor.
+	 */
+	public ParallelSolver() {
+		this(Solver.DEFAULT_MAX_NODES, Solver.DEFAULT_TIME_LIMIT, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param maxNodes - the maximum number of positions to expand before giving up, across all
+	 *        threads
+	 * @param timeLimit - the maximum time to search for, in milliseconds
+	 * @param parallelism - the number of threads to search on
+	 */
+	public ParallelSolver(final int maxNodes, final long timeLimit, final int parallelism) {
+		this(maxNodes, timeLimit, parallelism, DEFAULT_SPLIT_DEPTH, DEFAULT_TABLE_SIZE);
+	}
+
+	/**
+	 * @param maxNodes - the maximum number of positions to expand before giving up, across all
+	 *        threads
+	 * @param timeLimit - the maximum time to search for, in milliseconds
+	 * @param parallelism - the number of threads to search on
+	 * @param splitDepth - the number of levels of the search to split into separate tasks. Deeper
+	 *        splits balance the work between threads better, at the cost of copying more games.
+	 * @param tableSize - the number of positions the shared transposition table can remember
+	 */
+	public ParallelSolver(final int maxNodes, final long timeLimit, final int parallelism, final int splitDepth, final int tableSize) {
+		if (maxNodes <= 0) throw new IllegalArgumentException("Node limit (" + maxNodes + ") must be positive");
+		if (timeLimit <= 0) throw new IllegalArgumentException("Time limit (" + timeLimit + ") must be positive");
+		if (parallelism <= 0) throw new IllegalArgumentException("Parallelism (" + parallelism + ") must be positive");
+		if (splitDepth < 0) throw new IllegalArgumentException("Split depth (" + splitDepth + ") must not be negative");
+
+		this.maxNodes = maxNodes;
+		this.timeLimit = timeLimit;
+		this.splitDepth = splitDepth;
+
+		pool = new ForkJoinPool(parallelism);
+		visited = new ConcurrentTranspositionTable(tableSize);
+		workers = ThreadLocal.withInitial(() -> new Solver(visited));
+	}
+
+	/**
+	 * Solves the given game.
+	 * @param game - the game to solve. It is not modified.
+	 * @return the solution found, or the reason none was found. The number of nodes is the total
+	 *         across all threads.
+	 */
+	public Solution findSolution(final Game game) {
+		final long start = System.nanoTime();
+		final Search search = new Search(maxNodes, start + timeLimit * 1_000_000, splitDepth, workers);
+
+		pool.invoke(new Subtree(search, new Game(game), new int[0], 0));
+		visited.nextSearch();
+
+		final long time = System.nanoTime() - start;
+		final int nodes = (int) Math.min(search.nodes.get(), Integer.MAX_VALUE);
+		final int[] moves = search.solution.get();
+		if (moves != null) return new Solution(Solution.Status.SOLVED, moves, nodes, time);
+		return new Solution(search.limitReached || search.depthLimited ? Solution.Status.LIMIT_REACHED : Solution.Status.UNSOLVABLE, new int[0], nodes, time);
+	}
+
+	/**
+	 * Stops the threads of the solver. The solver cannot be used afterwards.
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+}
@@ -0,0 +1,38 @@
+/**
+ * A record of the positions a search has already visited, keyed by their 64-bit hashes (see
+ * {@link Game#canonicalHash()}). Tables may forget positions to bound their memory use, in which case
+ * the positions are searched again.
+ */
+public interface PositionTable {
+
+	/**
+	 * Records that the position with the given hash has been reached.
+	 * @param key - the hash of the position
+	 * @param depth - the number of moves between the start of the search and the position
+	 * @return <code>true</code> if the position was not already in the table, or
+	 *         <code>false</code> if it has already been visited in this search
+	 */
+	boolean add(long key, int depth);
+
+	/**
+	 * @param key - the hash of the position
+	 * @return whether or not the position has been visited in this search
+	 */
+	boolean contains(long key);
+
+	/**
+	 * Forgets every position in the table.
+	 */
+	void nextSearch();
+
+	/**
+	 * @return the number of positions recorded in this search
+	 */
+	int size();
+
+	/**
+	 * @return the maximum number of positions the table can hold
+	 */
+	int capacity();
+
+}
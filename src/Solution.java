@@ -0,0 +1,92 @@
+public class Solution {
+
+	public enum Status {
+		/**
+		 * A winning sequence of moves was found.
+		 */
+		SOLVED,
+		/**
+		 * Every reachable position was searched without finding a win.
+		 */
+		UNSOLVABLE,
+		/**
+		 * The search ran out of nodes or time before it could decide the game.
+		 */
+		LIMIT_REACHED
+	}
+
+	/**
+	 * The number of entries in {@link #moves} used by each move.
+	 */
+	public static final int MOVE_SIZE = Game.MOVE_SIZE;
+
+	public final Status status;
+
+	/**
+	 * The moves of the solution, in order, with {@link #MOVE_SIZE} entries per move. Each move is
+	 * given as the (srcSlot, srcIndex, destSlot, destIndex) arguments for
+	 * {@link Game#move(int, int, int, int)}. Dragon collections use a srcIndex of
+	 * {@link Game#COLLECT_DRAGONS}, with the color as the srcSlot and the sideboard slot the dragons
+	 * are moved to as the destSlot. Cards moved to the completed slots have a destSlot of 4 for the
+	 * rose, or 5 + the color of the card. Empty unless the status is {@link Status#SOLVED}.
+	 */
+	public final int[] moves;
+
+	/**
+	 * The number of positions that were expanded during the search.
+	 */
+	public final int nodes;
+
+	/**
+	 * The time taken by the search, in nanoseconds.
+	 */
+	public final long time;
+
+	public Solution(final Status status, final int[] moves, final int nodes, final long time) {
+		this.status = status;
+		this.moves = moves;
+		this.nodes = nodes;
+		this.time = time;
+	}
+
+	public boolean isSolved() {
+		return status == Status.SOLVED;
+	}
+
+	/**
+	 * @return the number of moves in the solution
+	 */
+	public int length() {
+		return moves.length / MOVE_SIZE;
+	}
+
+	/**
+	 * Performs the move at the given position in the solution on the given game.
+	 * @param game - the game to make the move on
+	 * @param move - the index of the move, from 0 to {@link #length()} - 1
+	 * @return whether or not the move was successful
+	 */
+	public boolean apply(final Game game, final int move) {
+		return apply(game, moves, move * MOVE_SIZE);
+	}
+
+	/**
+	 * Performs the move starting at the given offset of a move list on the given game.
+	 * @param game - the game to make the move on
+	 * @param moves - the move list, as in {@link #moves}
+	 * @param offset - the offset of the first entry of the move
+	 * @return whether or not the move was successful
+	 */
+	public static boolean apply(final Game game, final int[] moves, final int offset) {
+		if (moves[offset + 1] == Game.COLLECT_DRAGONS) {
+			final DragonCollectionResult dcr = game.canCollectDragons(moves[offset]);
+			if (dcr == null) return false;
+
+			game.collectDragons(dcr);
+			return true;
+		}
+
+		return game.move(moves[offset], moves[offset + 1], moves[offset + 2], moves[offset + 3]);
+	}
+
+}
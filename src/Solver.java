@@ -0,0 +1,336 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Searches for a sequence of moves that wins a {@link Game}, using the same moves that
+ * {@link Game#move(int, int, int, int)}, {@link Game#collectDragons(DragonCollectionResult)} and
+ * {@link Game#settle(int[])} allow. Cards that can be autofilled are always moved to the completed
+ * slots before the next move is searched, as the game window does.<br>
+ * The solver does not depend on JavaFX. A solver may be reused for multiple games, but must not be
+ * used by more than one thread at once. See {@link ParallelSolver} to search one game on many
+ * threads.
+ */
+public class Solver {
+
+	public static final int DEFAULT_MAX_NODES = 2_000_000;
+
+	/**
+	 * The default number of positions remembered by the transposition table.
+	 */
+	public static final int DEFAULT_TABLE_SIZE = 1 << 20;
+
+	/**
+	 * The default time limit of a search, in milliseconds.
+	 */
+	public static final long DEFAULT_TIME_LIMIT = 10_000;
+
+	/**
+	 * The deepest the search may go, in moves. Positions deeper than this are not searched, and a
+	 * search that skips any of them reports {@link Solution.Status#LIMIT_REACHED} rather than
+	 * {@link Solution.Status#UNSOLVABLE} if it finds no solution.
+	 */
+	private static final int MAX_DEPTH = 512;
+
+	private final int maxNodes;
+	private final long timeLimit;
+
+	private final PositionTable visited;
+
+	/**
+	 * The parallel search this solver is currently a worker of, or <code>null</code> if it searches
+	 * on its own.
+	 */
+	private ParallelSolver.Search shared;
+
+	private final int[][] moveBuffers = new int[MAX_DEPTH][];
+	private final int[][] orderBuffers = new int[MAX_DEPTH][];
+	private final int[] settled = new int[Game.SETTLE_BUFFER_SIZE];
+
+	private int[] path = new int[64 * Solution.MOVE_SIZE];
+	private int pathLength;
+	private int nodes;
+	private long deadline;
+	private boolean limitReached;
+	private boolean depthLimited;
+
+	public Solver() {
+		this(DEFAULT_MAX_NODES, DEFAULT_TIME_LIMIT);
+	}
+
+	/**
+	 * @param maxNodes - the maximum number of positions to expand before giving up
+	 * @param timeLimit - the maximum time to search for, in milliseconds
+	 */
+	public Solver(final int maxNodes, final long timeLimit) {
+		this(maxNodes, timeLimit, DEFAULT_TABLE_SIZE);
+	}
+
+	/**
+	 * @param maxNodes - the maximum number of positions to expand before giving up
+	 * @param timeLimit - the maximum time to search for, in milliseconds
+	 * @param tableSize - the number of positions the transposition table can remember. Positions
+	 *        that are forgotten may be searched again, but memory use stays bounded.
+	 */
+	public Solver(final int maxNodes, final long timeLimit, final int tableSize) {
+		if (maxNodes <= 0) throw new IllegalArgumentException("Node limit (" + maxNodes + ") must be positive");
+		if (timeLimit <= 0) throw new IllegalArgumentException("Time limit (" + timeLimit + ") must be positive");
+
+		this.maxNodes = maxNodes;
+		this.timeLimit = timeLimit;
+		visited = new TranspositionTable(tableSize);
+	}
+
+	/**
+	 * Creates a worker for a {@link ParallelSolver}, whose limits are those of the parallel search.
+	 * @param visited - the table shared by every worker
+	 */
+	Solver(final PositionTable visited) {
+		maxNodes = Integer.MAX_VALUE;
+		timeLimit = Long.MAX_VALUE;
+		this.visited = visited;
+	}
+
+	/**
+	 * Solves the given game with the default limits.
+	 * @param game - the game to solve. It is not modified.
+	 * @return the solution found, or the reason none was found
+	 */
+	public static Solution solve(final Game game) {
+		return new Solver().findSolution(game);
+	}
+
+	/**
+	 * Solves the given game. The search stops early, as if it had reached its limits, if the thread
+	 * running it is interrupted.
+	 * @param game - the game to solve. It is not modified.
+	 * @return the solution found, or the reason none was found
+	 */
+	public Solution findSolution(final Game game) {
+		final long start = System.nanoTime();
+		deadline = start + timeLimit * 1_000_000;
+		nodes = 0;
+		pathLength = 0;
+		limitReached = false;
+		depthLimited = false;
+
+		final boolean solved = search(new Game(game), 0);
+		visited.nextSearch();
+
+		final long time = System.nanoTime() - start;
+		if (solved) return new Solution(Solution.Status.SOLVED, Arrays.copyOf(path, pathLength), nodes, time);
+		return new Solution(limitReached || depthLimited ? Solution.Status.LIMIT_REACHED : Solution.Status.UNSOLVABLE, new int[0], nodes, time);
+	}
+
+	/**
+	 * Searches part of a parallel search, from a position reached by the given moves. If a win is
+	 * found, it is recorded in the search, which is then stopped.
+	 * @param search - the parallel search
+	 * @param game - the position to search from, which is modified
+	 * @param prefix - the moves from the start of the search to the position
+	 * @param depth - the depth of the position in the search
+	 */
+	void searchSubtree(final ParallelSolver.Search search, final Game game, final int[] prefix, final int depth) {
+		shared = search;
+		nodes = 0;
+		limitReached = false;
+		depthLimited = false;
+		if (path.length < prefix.length + Solution.MOVE_SIZE) {
+			path = Arrays.copyOf(prefix, Math.max(prefix.length * 2, path.length));
+		} else {
+			System.arraycopy(prefix, 0, path, 0, prefix.length);
+		}
+		pathLength = prefix.length;
+
+		final boolean solved = search(game, depth);
+
+		// Nodes are added to the search 256 at a time, so add the rest
+		search.nodes.addAndGet(nodes & 0xFF);
+		nodes = 0;
+		if (solved) search.solved(Arrays.copyOf(path, pathLength));
+	}
+
+	private boolean search(final Game game, final int depth) {
+		autoFill(game);
+		if (game.isWon()) return true;
+
+		// Positions that only differ by the order of their slots are searched once
+		if (!visited.add(game.canonicalHash(), depth)) return false;
+
+		if (depth >= MAX_DEPTH) {
+			depthLimited = true;
+			if (shared != null) shared.depthLimited = true;
+			return false;
+		}
+
+		if (++nodes > maxNodes || (nodes & 0xFF) == 0 && outOfLimits()) {
+			limitReached = true;
+			return false;
+		}
+
+		// Gather every useful move, then search the resulting positions from the most to the least
+		// promising.
+		// Moves are made and undone on the same game rather than on copies of it.
+		if (moveBuffers[depth] == null) {
+			moveBuffers[depth] = new int[Game.MOVE_BUFFER_SIZE];
+			orderBuffers[depth] = new int[Game.MAX_MOVES];
+		}
+		final int[] moves = moveBuffers[depth];
+		final int[] order = orderBuffers[depth];
+
+		final int numMoves = filterMoves(game, moves, game.generateMoves(moves));
+		final int history = game.historySize();
+
+		// Score each move, and sort them with an insertion sort on (score << 16 | move), which keeps
+		// generation order between equal scores
+		for (int m = 0; m < numMoves; m++) {
+			Solution.apply(game, moves, m * Solution.MOVE_SIZE);
+			final int entry = score(game) << 16 | m;
+			game.undoTo(history);
+
+			int i = m;
+			while (i > 0 && order[i - 1] > entry) {
+				order[i] = order[i - 1];
+				i--;
+			}
+			order[i] = entry;
+		}
+
+		if (shared != null && depth < shared.splitDepth) return fork(game, moves, order, numMoves, depth);
+
+		final int mark = pathLength;
+		for (int i = 0; i < numMoves; i++) {
+			final int m = (order[i] & 0xFFFF) * Solution.MOVE_SIZE;
+			Solution.apply(game, moves, m);
+			push(moves[m], moves[m + 1], moves[m + 2], moves[m + 3]);
+
+			if (search(game, depth + 1)) return true;
+
+			game.undoTo(history);
+			pathLength = mark;
+
+			if (limitReached) return false;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Checks the limits of the search. Called every 256 nodes, as the checks are relatively slow.
+	 * @return whether or not the search should stop
+	 */
+	private boolean outOfLimits() {
+		if (shared == null) return System.nanoTime() > deadline || Thread.currentThread().isInterrupted();
+
+		// The workers of a parallel search share their node limit and deadline
+		if (shared.nodes.addAndGet(0x100) > shared.maxNodes || System.nanoTime() > shared.deadline) {
+			shared.limitReached = true;
+			shared.stopped = true;
+		}
+		return shared.stopped;
+	}
+
+	/**
+	 * Searches the positions after each of the given moves as separate tasks of the parallel search,
+	 * which may be run by other workers. The moves are searched in order, but not one at a time.
+	 * @return <code>false</code>, as a win found by a task is recorded in the search by the task
+	 */
+	private boolean fork(final Game game, final int[] moves, final int[] order, final int numMoves, final int depth) {
+		final List<ParallelSolver.Subtree> tasks = new ArrayList<>(numMoves);
+		for (int i = 0; i < numMoves; i++) {
+			final int m = (order[i] & 0xFFFF) * Solution.MOVE_SIZE;
+			final Game child = new Game(game);
+			Solution.apply(child, moves, m);
+
+			final int[] prefix = Arrays.copyOf(path, pathLength + Solution.MOVE_SIZE);
+			System.arraycopy(moves, m, prefix, pathLength, Solution.MOVE_SIZE);
+			tasks.add(new ParallelSolver.Subtree(shared, child, prefix, depth + 1));
+		}
+
+		// Add the nodes counted so far before other tasks reuse this solver while it waits
+		shared.nodes.addAndGet(nodes & 0xFF);
+		nodes = 0;
+
+		ForkJoinTask.invokeAll(tasks);
+		return false;
+	}
+
+	/**
+	 * Removes the moves that cannot lead anywhere new from a list of legal moves: moves between
+	 * sideboard slots, moves of a whole main board slot to an empty slot, and moves to any empty
+	 * slot other than the first, since all empty slots are equivalent.
+	 * @return the number of moves left, which are moved to the start of the list
+	 */
+	private static int filterMoves(final Game game, final int[] moves, final int numMoves) {
+		final int emptySlot = firstEmptySlot(game);
+		final int emptySideboard = firstEmptySideboard(game);
+
+		int n = 0;
+		for (int m = 0; m < numMoves * Solution.MOVE_SIZE; m += Solution.MOVE_SIZE) {
+			final int srcIndex = moves[m + 1], destSlot = moves[m + 2], destIndex = moves[m + 3];
+
+			if (srcIndex != Game.COLLECT_DRAGONS) {
+				if (destIndex == -1 && (srcIndex == -1 || destSlot != emptySideboard)) continue;
+				if (destIndex == 0 && (srcIndex == 0 || destSlot != emptySlot)) continue;
+			}
+
+			if (n != m) System.arraycopy(moves, m, moves, n, Solution.MOVE_SIZE);
+			n += Solution.MOVE_SIZE;
+		}
+		return n / Solution.MOVE_SIZE;
+	}
+
+	/**
+	 * Estimates how far the given position is from being won. Lower scores are searched first.
+	 */
+	private static int score(final Game game) {
+		int score = game.cardsRemaining();
+		for (int s = 0; s < 8; s++) {
+			// Cards covered by cards that cannot be moved along with them are hard to reach
+			score += 2 * (game.cardsIn(s) - game.movableCount(s));
+		}
+		for (int s = 0; s < 3; s++) {
+			final int card = game.sideboardCard(s);
+			if (card >= 0 && (card & 0b1001111) != 0b1001111) score += 2;
+		}
+		return score;
+	}
+
+	/**
+	 * Moves every card that can be autofilled to the completed slots, recording each move in the
+	 * path.
+	 */
+	private void autoFill(final Game game) {
+		final int count = game.settle(settled) * Solution.MOVE_SIZE;
+		for (int i = 0; i < count; i += Solution.MOVE_SIZE) {
+			push(settled[i], settled[i + 1], settled[i + 2], settled[i + 3]);
+		}
+	}
+
+	private void push(final int srcSlot, final int srcIndex, final int destSlot, final int destIndex) {
+		if (pathLength + Solution.MOVE_SIZE > path.length) {
+			path = Arrays.copyOf(path, path.length * 2);
+		}
+
+		path[pathLength++] = srcSlot;
+		path[pathLength++] = srcIndex;
+		path[pathLength++] = destSlot;
+		path[pathLength++] = destIndex;
+	}
+
+	private static int firstEmptySlot(final Game game) {
+		for (int s = 0; s < 8; s++) {
+			if (game.cardsIn(s) == 0) return s;
+		}
+		return -1;
+	}
+
+	private static int firstEmptySideboard(final Game game) {
+		for (int s = 0; s < 3; s++) {
+			if (game.sideboardCard(s) < 0) return s;
+		}
+		return -1;
+	}
+
+}
@@ -0,0 +1,119 @@
+import java.util.Arrays;
+
+/**
+ * A fixed-size record of the positions a search has already visited, keyed by their 64-bit hashes
+ * (see {@link Game#zobristHash()}). The table never grows: entries are stored by open addressing
+ * within a small probe window, and when every slot of the window is taken, the entry that was
+ * found deepest in the search is evicted, since it is the cheapest to search again.<br>
+ * Entries from earlier searches are ignored after {@link #nextSearch()}, so the table does not
+ * have to be cleared between searches. A table must not be used by more than one thread at once.
+ */
+public class TranspositionTable implements PositionTable {
+
+	/**
+	 * The number of consecutive slots that a key may be stored in.
+	 */
+	private static final int PROBE_WINDOW = 8;
+
+	private static final int DEPTH_BITS = 12;
+	private static final int DEPTH_MASK = (1 << DEPTH_BITS) - 1;
+
+	private final long[] keys;
+
+	/**
+	 * The search generation and depth of each entry, stored as (generation << DEPTH_BITS | depth).
+	 */
+	private final int[] entries;
+	private final int mask;
+
+	private int generation = 1;
+	private int size;
+
+	/**
+	 * @param capacity - the number of entries the table can hold. This is rounded up to a power of
+	 *        two.
+	 */
+	public TranspositionTable(final int capacity) {
+		if (capacity <= 0 || capacity > 1 << 30) throw new IllegalArgumentException("Capacity (" + capacity + ") out of range");
+
+		final int length = Math.max(Integer.highestOneBit(capacity - 1) << 1, PROBE_WINDOW);
+		keys = new long[length];
+		entries = new int[length];
+		mask = length - 1;
+	}
+
+	@Override
+	public boolean add(final long key, final int depth) {
+		final int stamp = generation << DEPTH_BITS | Math.min(depth, DEPTH_MASK);
+
+		int victim = -1;
+		int victimDepth = -1;
+		for (int probe = 0, i = index(key); probe < PROBE_WINDOW; probe++, i = i + 1 & mask) {
+			if (entries[i] >>> DEPTH_BITS != generation) { // An empty or stale slot
+				if (victimDepth <= DEPTH_MASK) {
+					victim = i;
+					victimDepth = DEPTH_MASK + 1;
+				}
+				continue;
+			}
+
+			if (keys[i] == key) return false;
+
+			final int entryDepth = entries[i] & DEPTH_MASK;
+			if (entryDepth > victimDepth) {
+				victim = i;
+				victimDepth = entryDepth;
+			}
+		}
+
+		if (victimDepth <= DEPTH_MASK) {
+			// Every slot of the window is in use, so only evict an entry that is deeper than this one
+			if (victimDepth < (stamp & DEPTH_MASK)) return true;
+		} else {
+			size++;
+		}
+
+		keys[victim] = key;
+		entries[victim] = stamp;
+		return true;
+	}
+
+	@Override
+	public boolean contains(final long key) {
+		for (int probe = 0, i = index(key); probe < PROBE_WINDOW; probe++, i = i + 1 & mask) {
+			if (keys[i] == key && entries[i] >>> DEPTH_BITS == generation) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Forgets every position in the table in constant time, by starting a new generation of
+	 * entries.
+	 */
+	@Override
+	public void nextSearch() {
+		size = 0;
+		if (++generation >= 1 << 31 - DEPTH_BITS) {
+			// The generation counter has wrapped around, so old entries could be mistaken for new ones
+			Arrays.fill(entries, 0);
+			generation = 1;
+		}
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public int capacity() {
+		return keys.length;
+	}
+
+	private int index(final long key) {
+		// The low bits of Zobrist hashes are already uniformly distributed, but mix the high bits in
+		// so that other hashes work too.
+		return (int) (key ^ key >>> 32) & mask;
+	}
+
+}
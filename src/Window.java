@@ -1,28 +1,19 @@
-import java.awt.Point;
 import java.io.FileNotFoundException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-
-import javafx.animation.Animation;
-import javafx.animation.FadeTransition;
-import javafx.animation.ParallelTransition;
-import javafx.animation.PauseTransition;
-import javafx.animation.SequentialTransition;
-import javafx.animation.TranslateTransition;
+
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
 import javafx.beans.binding.NumberBinding;
 import javafx.beans.property.SimpleDoubleProperty;
-import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
 import javafx.geometry.Point2D;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
 import javafx.scene.PerspectiveCamera;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
@@ -37,25 +28,97 @@ import javafx.scene.layout.StackPane;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 import javafx.stage.Stage;
-import javafx.util.Duration;
 
 public class Window extends Application {
 
 	private static final int TRANSLATE_DURATION = 250;
 
+	/**
+	 * The time each move of a solution takes when it is played back, in milliseconds.
+	 */
+	private static final int SOLVE_MOVE_DURATION = TRANSLATE_DURATION / 2;
+
+	/**
+	 * The time between the starts of the moves of an autocomplete cascade, in milliseconds.
+	 */
+	private static final int AUTOCOMPLETE_STAGGER = TRANSLATE_DURATION / 3;
+
+	/**
+	 * The number of cards created at startup: a deal, and a solved dragon of each color. Playing
+	 * back a solution can briefly need more, as collected dragons stay on screen until the end of
+	 * the move.
+	 */
+	private static final int POOL_SIZE = 40 + 3;
+
 	private Game game;
 
 	private StackPane stackPane;
 	private NumberBinding cardWidth;
 	private NumberBinding xOffset;
 
-	private final BidirectionalHashMap<Point, Card> cards = new BidirectionalHashMap<>();
+	private final CardRegistry cards = new CardRegistry();
+	/**
+	 * Cards that are not on the screen, which are reused rather than created for every deal.
+	 */
+	private final ArrayDeque<Card> cardPool = new ArrayDeque<>();
+	/**
+	 * The card width that the fonts of the cards and buttons were last sized for.
+	 */
+	private double fontWidth = Double.NaN;
 	private boolean dealing = false;
 	private long autocompletingId = -1;
-	private final Map<Card, Animation> activeAnimations = new HashMap<>();
+	/**
+	 * The moves of the last autocomplete cascade, as given by {@link Game#settle(int[])}.
+	 */
+	private final int[] settled = new int[Game.SETTLE_BUFFER_SIZE];
+	private final Animator animator = new Animator(this::xPosition, this::yPosition);
+	private final DropTargets dropTargets = new DropTargets(this::xPosition, this::yPosition);
+	/**
+	 * The hash of the game when {@link #dropTargets} were found, so that they are only found again
+	 * if the game changes during a drag.
+	 */
+	private long dropTargetsHash;
+	/**
+	 * Outlines where the dragged cards would land if they were dropped now.
+	 */
+	private Label dropMarker;
+	/**
+	 * The target of {@link #dropTargets} shown by {@link #dropMarker}, or -1 if it is hidden.
+	 */
+	private int dropTarget = -1;
 	private final Button[] buttons = new Button[3];
 
-	public static final Card PLACEHOLDER_CARD = new Card(-1, new SimpleIntegerProperty(0).negate());
+	private final HintService hints = new HintService(Platform::runLater, this::showHint);
+	private Button hintButton;
+	/**
+	 * The best next move for the position with the hash {@link #hintHash}, or <code>null</code> if
+	 * it has not been found yet.
+	 */
+	private int[] hint;
+	private long hintHash;
+	private final List<Card> highlighted = new ArrayList<>();
+
+	/**
+	 * Created by the first {@link #solve()}, as its transposition table and threads are large, and
+	 * many games never use it.
+	 */
+	private ParallelSolver solver;
+	private Button solveButton;
+	/**
+	 * Whether or not a solution is being searched for or played back, during which the cards
+	 * cannot be moved by hand.
+	 */
+	private boolean solving = false;
+	/**
+	 * Whether or not {@link #solver} is searching. It can only search one game at a time, and a
+	 * search cannot be stopped, so Solve stays disabled until the search returns, even if a new game
+	 * has been started since.
+	 */
+	private boolean searching = false;
+	/**
+	 * Incremented for every game, so that solutions for earlier games are ignored.
+	 */
+	private int gameId;
 
 	public static void main(final String[] args) throws FileNotFoundException {
 		Application.launch(args);
@@ -76,41 +139,43 @@ public class Window extends Application {
 		for (int s = 0; s < 8; s++) {
 			if (s != 3) {
 				final Label topPlaceholder = makePlaceholder(cardWidth);
-				topPlaceholder.translateXProperty().bind(xBinding(s, -1));
-				topPlaceholder.translateYProperty().bind(yBinding(s, -1));
+				topPlaceholder.translateXProperty().bind(xBinding(s));
+				topPlaceholder.translateYProperty().bind(yBinding(-1));
 				stackPane.getChildren().add(topPlaceholder);
 			}
 
 			final Label mainPlaceholder = makePlaceholder(cardWidth);
-			mainPlaceholder.translateXProperty().bind(xBinding(s, 0));
-			mainPlaceholder.translateYProperty().bind(yBinding(s, 0));
+			mainPlaceholder.translateXProperty().bind(xBinding(s));
+			mainPlaceholder.translateYProperty().bind(yBinding(0));
 			stackPane.getChildren().add(mainPlaceholder);
 		}
 
+		dropMarker = makePlaceholder(cardWidth);
+		dropMarker.setBorder(Card.HIGHLIGHT_BORDER);
+		dropMarker.setMouseTransparent(true);
+		dropMarker.setVisible(false);
+		stackPane.getChildren().add(dropMarker);
+
 		for (int c = 0; c < 3; c++) {
 			final int color = c;
 
 			final Button button = buttons[c] = new Button(Card.COLORS[c]);
 			button.setOnAction(event -> collectDragons(color));
 
-			button.translateXProperty().bind(xBinding(3, -1));
+			button.translateXProperty().bind(xBinding(3));
 			button.translateYProperty().bind(cardWidth.multiply(c * 7D / 15).add(5));
 			button.minWidthProperty().bind(cardWidth.subtract(10));
 			button.maxWidthProperty().bind(button.minWidthProperty());
 			button.minHeightProperty().bind(cardWidth.multiply(7D / 15).subtract(5));
 			button.maxHeightProperty().bind(button.minHeightProperty());
 
-			button.setFont(new Font(button.heightProperty().getValue().doubleValue() / 8));
-			button.heightProperty().addListener((observable, oldValue, newValue) -> {
-				button.setFont(new Font(newValue.doubleValue() * 0.375));
-			});
 			button.setDisable(true);
 
 			stackPane.getChildren().add(button);
 		}
 
 		final Button newGame = new Button("New Game");
-		newGame.translateXProperty().bind(xBinding(6, -1));
+		newGame.translateXProperty().bind(xBinding(6));
 		newGame.translateYProperty().bind(stackPane.heightProperty().subtract(newGame.heightProperty()).subtract(5));
 		newGame.minWidthProperty().bind(cardWidth.multiply(2).subtract(10));
 		newGame.maxWidthProperty().bind(newGame.minWidthProperty());
@@ -119,13 +184,41 @@ public class Window extends Application {
 		newGame.setOnAction(event -> {
 			collectAndRestart();
 		});
-		newGame.setFont(new Font(newGame.heightProperty().getValue().doubleValue() / 8));
-		newGame.heightProperty().addListener((observable, oldValue, newValue) -> {
-			newGame.setFont(new Font(newValue.doubleValue() * 0.375));
-		});
 		stackPane.getChildren().add(newGame);
 
+		hintButton = new Button("Hint");
+		hintButton.translateXProperty().bind(xBinding(0));
+		hintButton.translateYProperty().bind(stackPane.heightProperty().subtract(hintButton.heightProperty()).subtract(5));
+		hintButton.minWidthProperty().bind(cardWidth.multiply(2).subtract(10));
+		hintButton.maxWidthProperty().bind(hintButton.minWidthProperty());
+		hintButton.minHeightProperty().bind(cardWidth.multiply(7D / 15).subtract(5));
+		hintButton.maxHeightProperty().bind(hintButton.minHeightProperty());
+		hintButton.setOnAction(event -> {
+			highlightHint();
+		});
+		hintButton.setDisable(true);
+		stackPane.getChildren().add(hintButton);
+
+		solveButton = new Button("Solve");
+		solveButton.translateXProperty().bind(xBinding(2));
+		solveButton.translateYProperty().bind(stackPane.heightProperty().subtract(solveButton.heightProperty()).subtract(5));
+		solveButton.minWidthProperty().bind(cardWidth.multiply(2).subtract(10));
+		solveButton.maxWidthProperty().bind(solveButton.minWidthProperty());
+		solveButton.minHeightProperty().bind(cardWidth.multiply(7D / 15).subtract(5));
+		solveButton.maxHeightProperty().bind(solveButton.minHeightProperty());
+		solveButton.setOnAction(event -> {
+			solve();
+		});
+		stackPane.getChildren().add(solveButton);
+
+		for (int i = 0; i < POOL_SIZE; i++) {
+			cardPool.push(createCard());
+		}
+
 		final Scene scene = new Scene(stackPane, 640, 480);
+		// Resizing the window changes the size many times a frame, so the cards are only laid out
+		// once per frame, before the layout of the scene
+		scene.addPreLayoutPulseListener(this::layOut);
 		scene.setCamera(new PerspectiveCamera());
 		stage.setScene(scene);
 		stage.show();
@@ -133,288 +226,337 @@ public class Window extends Application {
 		startGame();
 	}
 
+	@Override
+	public void stop() {
+		hints.shutdown();
+		if (solver != null) solver.shutdown();
+	}
+
 	private void startGame() {
 		game = new Game();
+		for (final Node node : stackPane.getChildren()) {
+			if (node instanceof Card) cardPool.push((Card) node);
+		}
 		stackPane.getChildren().removeIf(node -> node instanceof Card);
 		cards.clear();
+		hideDropTarget();
 		for (final Button b : buttons)
 			b.setDisable(true);
 
-		final ParallelTransition deal = new ParallelTransition();
+		hint = null;
+		hintHash = 0;
+		hideHint();
+
+		gameId++;
+		solving = false;
+		solveButton.setDisable(searching);
+
+		dealing = true;
 		for (int i = 0; i < 40; i++) {
 			final int x = i % 8;
 			final int y = i / 8;
 
-			final Card card = new Card(game.cardAt(x, y), cardWidth, this::isDraggable);
+			final Card card = takeCard(game.cardAt(x, y));
 			if (i == 39) card.enableShadow(true);
+			stackPane.getChildren().add(card);
+			cards.put(x, y, card);
 
-			final ObservableValue<Number> startX = xBinding(4, -1, false), startY = yBinding(4, -1, false), endX = xBinding(x, y), endY = yBinding(x, y);
-			card.translateXProperty().bind(startX);
-			card.translateYProperty().bind(startY);
-
-			final TranslateTransition anim = new TranslateTransition(Duration.millis(TRANSLATE_DURATION), card);
-			anim.toXProperty().bind(endX);
-			anim.toYProperty().bind(endY);
-			anim.setOnFinished(event -> {
-				card.translateXProperty().bind(endX);
-				card.translateYProperty().bind(endY);
-				activeAnimations.remove(card);
-			});
+			// Each card waits in the deck until it is dealt, in the order they were added
+			final double delay = TRANSLATE_DURATION * i / 4D;
+			animator.moveFrom(card, delay, TRANSLATE_DURATION, 4, -1, x, y);
+			animator.schedule(delay, () -> card.enableShadow(true));
+			animator.schedule(delay + TRANSLATE_DURATION, () -> place(card));
+		}
 
-			final PauseTransition wait = new PauseTransition(Duration.millis(TRANSLATE_DURATION * i / 4D));
-			wait.setOnFinished(e -> {
-				card.translateXProperty().unbind();
-				card.translateYProperty().unbind();
-				card.enableShadow(true);
-				card.toFront();
-				activeAnimations.put(card, anim);
-				anim.play();
-			});
+		animator.schedule(TRANSLATE_DURATION * 39 / 4D + 1.5 * TRANSLATE_DURATION, () -> {
+			dealing = false;
+			autocomplete();
+		});
+	}
 
-			deal.getChildren().add(wait);
+	/**
+	 * Moves every card that is not animated or dragged to its position in {@link #cards}, and
+	 * resizes the fonts. Runs once per frame.
+	 */
+	private void layOut() {
+		updateFonts();
+		cards.forEach(this::layOut);
+		if (dropTarget >= 0) layOutDropMarker();
+	}
 
-			card.setOnMove(createOnMove(card));
+	private void layOut(final Card card) {
+		if (!card.laidOut) return;
 
-			card.setOnDrag(event -> {
-				// Bring all cards being moved to the front, in order
-				final Point position = cards.getKey(card);
+		card.setTranslateX(xPosition(cards.slotOf(card)));
+		card.setTranslateY(yPosition(cards.indexOf(card)));
+	}
 
-				if (position.y < 0) {
-					card.toFront();
-					return;
-				}
+	/**
+	 * Hands a card over to the layout pass, which keeps it at its position in {@link #cards} from
+	 * now on.
+	 */
+	private void place(final Card card) {
+		card.translateXProperty().unbind();
+		card.translateYProperty().unbind();
+		card.laidOut = true;
+		layOut(card);
+	}
 
-				final int n = game.cardsIn(position.x);
-				for (int ix = position.y; ix < n; ix++) {
-					cards.get(new Point(position.x, ix)).toFront();
-				}
-			});
+	/**
+	 * Hands a card that has finished moving over to the layout pass, unless it was covered in the
+	 * completed slots while it moved and is no longer in {@link #cards}. A covered card is released
+	 * by the card covering it when that card lands, which is always later, as it started moving
+	 * later and moves for as long.
+	 */
+	private void land(final Card card) {
+		if (cards.contains(card)) place(card);
+	}
 
-			stackPane.getChildren().add(card);
-			cards.put(new Point(x, y), card);
+	/**
+	 * Takes a card away from the layout pass, so that it can be animated or dragged.
+	 */
+	private void detach(final Card card) {
+		card.translateXProperty().unbind();
+		card.translateYProperty().unbind();
+		card.laidOut = false;
+	}
+
+	/**
+	 * Sizes the fonts of the cards and buttons to the size of the window, if it changed since they
+	 * were last sized.
+	 */
+	private void updateFonts() {
+		final double width = cardWidth.doubleValue();
+		if (width == fontWidth) return;
+		fontWidth = width;
+
+		// Buttons are 7/15 of a card width high, less 5 pixels of spacing
+		final Font buttonFont = FontCache.get((width * 7 / 15 - 5) * 0.375);
+		for (final Node node : stackPane.getChildren()) {
+			if (node instanceof Card) {
+				((Card) node).updateFont();
+			} else if (node instanceof Button) {
+				((Button) node).setFont(buttonFont);
+			}
 		}
+	}
 
-		final SequentialTransition dealAndWait = new SequentialTransition(deal, new PauseTransition(Duration.millis(1.5 * TRANSLATE_DURATION)));
-		dealAndWait.setOnFinished(event -> {
-			autocomplete();
-			activeAnimations.remove(PLACEHOLDER_CARD);
-			dealing = false;
-			// collectAndRestart();
+	/**
+	 * Creates a card for {@link #cardPool}, with the handlers that every card needs in any game.
+	 */
+	private Card createCard() {
+		final Card card = new Card(-1, cardWidth, this::isDraggable);
+
+		card.setOnMove(createOnMove(card));
+		card.setOnDragged(event -> showDropTarget(card));
+
+		card.setOnDrag(event -> {
+			final int slot = cards.slotOf(card), index = cards.indexOf(card);
+			detach(card);
+			card.toFront();
+
+			// The legal targets are found once per drag, so that moving the card only looks them up
+			findDropTargets(slot, index);
+			if (index < 0) return;
+
+			// The cards on top of the dragged card follow it, each bound directly to it rather than
+			// to the card below, and are brought to the front in order
+			final int n = game.cardsIn(slot);
+			for (int ix = index + 1; ix < n; ix++) {
+				final Card follower = cards.get(slot, ix);
+				detach(follower);
+				follower.translateXProperty().bind(card.translateXProperty());
+				follower.translateYProperty().bind(card.translateYProperty().add(cardWidth.multiply((ix - index) * 7D / 25)));
+				follower.toFront();
+			}
 		});
 
-		dealing = true;
-		activeAnimations.put(PLACEHOLDER_CARD, dealAndWait);
-		dealAndWait.play();
+		return card;
+	}
+
+	/**
+	 * @return a card from {@link #cardPool} showing the given card, or a new one if the pool is
+	 *         empty
+	 */
+	private Card takeCard(final int value) {
+		final Card card = cardPool.isEmpty() ? createCard() : cardPool.pop();
+		card.rebind(value);
+		card.updateFont();
+		return card;
+	}
+
+	/**
+	 * Takes a card off the screen and out of {@link #cards}, and returns it to {@link #cardPool}.
+	 */
+	private void releaseCard(final Card card) {
+		stackPane.getChildren().remove(card);
+		cards.remove(card);
+		cardPool.push(card);
 	}
 
 	private void collectAndRestart() {
-		for (final Animation animation : activeAnimations.values()) {
-			animation.stop();
-		}
-		activeAnimations.clear();
+		hideHint();
+
+		animator.cancel();
 
 		dealing = true;
-		final ParallelTransition collect = new ParallelTransition();
-		for (final Card card : cards.values()) {
-			final TranslateTransition move = new TranslateTransition(Duration.millis(TRANSLATE_DURATION), card);
-			card.translateXProperty().unbind();
-			card.translateYProperty().unbind();
-			move.toXProperty().bind(xBinding(4, -1));
-			move.toYProperty().bind(yBinding(4, -1));
-			move.setOnFinished(event -> card.setText(""));
-			collect.getChildren().add(move);
+		final List<Card> collected = cards.values();
+		for (final Card card : collected) {
+			detach(card);
+			animator.move(card, 0, TRANSLATE_DURATION, 4, -1);
 		}
 
-		final SequentialTransition wait = new SequentialTransition(collect, new PauseTransition(Duration.millis(TRANSLATE_DURATION)));
-
-		collect.setOnFinished(event -> {
-			cards.values().stream().skip(1).forEach(stackPane.getChildren()::remove);
+		// Only the card on top of the deck stays, face down
+		animator.schedule(TRANSLATE_DURATION, () -> {
+			collected.forEach(card -> card.setText(""));
+			collected.stream().skip(1).forEach(this::releaseCard);
 		});
-		wait.setOnFinished(event -> {
-			activeAnimations.remove(PLACEHOLDER_CARD);
-			startGame();
-		});
-		activeAnimations.put(PLACEHOLDER_CARD, wait);
-		wait.play();
+		animator.schedule(2 * TRANSLATE_DURATION, this::startGame);
 	}
 
 	private ChangeListener<Point2D> createOnMove(final Card card) {
 		return (observableNull, oldValue, newValue) -> {
-			final Point oldPosition = cards.getKey(card);
-
-			final double x = (newValue.getX() - xOffset.doubleValue()) / cardWidth.doubleValue();
-
-			boolean moved = false, destSideboard = false;
-			int srcSlotCards = 0, destSlotCards = 0, destIndex = 0, newX = 0;
-			for (int i = 0; i < 2 && !moved; i++) {
-				newX = i == 0 ? (int) (x + 0.5) : x > newX ? (int) x + 1 : (int) x;
-
-				if (newX < 0 || newX >= 8) {
-					moved = false;
-				} else {
-					destSideboard = 2 * newValue.getY() < cardWidth.doubleValue() * (game.cardsIn(newX) + 5) * 7 / 25 + 16;
+			hideHint();
+			hideDropTarget();
 
-					// If it's being put back, don't try the slot next to it
-					if (i == 0 && newX == oldPosition.x && destSideboard == oldPosition.y < 0) break;
+			final int oldSlot = cards.slotOf(card), oldIndex = cards.indexOf(card);
 
-					// The number of cards originally in the source slot; there can only be one in
-					// the sideboard
-					srcSlotCards = oldPosition.y < 0 ? 1 : game.cardsIn(oldPosition.x);
+			// The number of cards being moved. There is always one card moved from the sideboard.
+			final int numCards = oldIndex < 0 ? 1 : game.cardsIn(oldSlot) - oldIndex;
 
-					// The number of cards originally in the destination slot
-					destSlotCards = destSideboard ? -1 : game.cardsIn(newX);
-
-					// The destIndex parameter for game#move
-					destIndex = destSideboard ? newX > 3 ? -2 : -1 : 0;
-					try {
-						moved = game.move(oldPosition.x, oldPosition.y, newX, destIndex);
-					} catch (final Exception e) {
-						moved = false;
-					}
-				}
+			// Cards dragged while a solution is being found are put back, as the solution is for the
+			// game as it was
+			int target = -1;
+			if (!solving) {
+				if (game.zobristHash() != dropTargetsHash) findDropTargets(oldSlot, oldIndex);
+				target = dropTargets.find(newValue.getX(), newValue.getY(), card.getWidth(), card.getHeight());
 			}
 
-			final TranslateTransition anim = new TranslateTransition(Duration.millis(TRANSLATE_DURATION), card);
-			ObservableValue<Number> xBinding, yBinding;
+			final List<Card> animatingCards = new ArrayList<>();
+			for (int n = 0; n < numCards; n++) {
+				animatingCards.add(cards.get(oldSlot, oldIndex < 0 ? -1 : oldIndex + n));
+			}
 
 			Card oldCard = null;
-
-			final Set<Card> animatingCards = new HashSet<>();
-
-			// Update the positions in #cards if cards were moved
-			if (moved) {
-				// Determine the color of the card if it's being completed
-				if (destIndex == -2) newX = 5 + (card.card >> 4 & 0b11);
-
-				// The number of cards that are being moved. There is always one card moved from
-				// the sideboard.
-				final int numCards = oldPosition.y >= 0 ? srcSlotCards - oldPosition.y : 1;
-
-				if (numCards > 1) { // If more than one card is moved, move them sequentially
-					for (int n = 0; n < numCards; n++) {
-						final Card c = cards.get(new Point(oldPosition.x, oldPosition.y + n));
-						cards.put(new Point(newX, destSlotCards + n), c);
-						animatingCards.add(c);
-					}
-				} else {
-					// Move the card to the new slot; if moving to the sideboard, use index
-					// (-2, -1, or 0), otherwise use destSlotCards (0+)
-					final Card old = cards.put(new Point(newX, destIndex < 0 ? destIndex : destSlotCards), card);
+			// Only legal targets are found, so the move is only checked against the game once
+			if (target >= 0 && game.move(oldSlot, oldIndex, dropTargets.slot(target), dropTargets.index(target))) {
+				final int destSlot = dropTargets.slot(target), destIndex = dropTargets.index(target);
+
+				// Update the positions in #cards. Cards moved to the top board keep the index (-2 or
+				// -1), and cards moved to the main board go from the index of the first onwards.
+				for (int n = 0; n < numCards; n++) {
+					final Card old = cards.put(destSlot, destIndex < 0 ? destIndex : destIndex + n, animatingCards.get(n));
 					if (destIndex == -2) oldCard = old;
-					animatingCards.add(card);
-				}
-
-				xBinding = xBinding(newX, destSideboard ? -1 : destSlotCards);
-				yBinding = yBinding(newX, destSideboard ? -1 : destSlotCards);
-			} else {
-				xBinding = xBinding(oldPosition.x, oldPosition.y);
-				yBinding = yBinding(oldPosition.x, oldPosition.y);
-
-				for (int i = oldPosition.y; i >= 0 && i < game.cardsIn(oldPosition.x); i++) {
-					animatingCards.add(cards.get(new Point(oldPosition.x, i)));
 				}
 			}
 
-			anim.toXProperty().bind(xBinding);
-			anim.toYProperty().bind(yBinding);
-			card.translateXProperty().unbind();
-			card.translateYProperty().unbind();
+			// Every card goes to its place in #cards, including the ones that followed the dragged card
+			for (final Card c : animatingCards) {
+				detach(c);
+				animator.move(c, 0, TRANSLATE_DURATION, cards.slotOf(c), cards.indexOf(c));
+			}
 
-			final boolean finalMoved = moved;
 			final Card finalOldCard = oldCard;
-			anim.setOnFinished(event -> {
-				card.translateXProperty().bind(xBinding);
-				card.translateYProperty().bind(yBinding);
-				if (finalMoved) {
-					if (finalOldCard != null) {
-						stackPane.getChildren().remove(finalOldCard);
-					}
-				}
-				animatingCards.forEach(activeAnimations::remove);
+			animator.schedule(TRANSLATE_DURATION, () -> {
+				// A card dropped on the completed slots may have been covered by an autocomplete since
+				animatingCards.forEach(this::land);
+				if (finalOldCard != null) releaseCard(finalOldCard);
 				autocomplete();
 			});
-			animatingCards.forEach(c -> activeAnimations.put(c, anim));
-			anim.play();
 		};
 	}
 
-	private void collectDragons(final int color) {
-		final DragonCollectionResult res = game.canCollectDragons(color);
-		if (res != null) {
-			game.collectDragons(res);
-			buttons[color].setDisable(true);
-
-			final ParallelTransition move = new ParallelTransition();
-
-			final Map<Point, Card> movingCards = new HashMap<>();
-			for (final int slot : res.slots) {
-				final Point point = new Point(slot % 8, slot >= 8 ? -1 : game.cardsIn(slot));
-				final Card card = cards.get(point);
+	/**
+	 * Finds the places the card at the given position can be dropped.
+	 */
+	private void findDropTargets(final int slot, final int index) {
+		dropTargets.build(game, slot, index);
+		dropTargetsHash = game.zobristHash();
+	}
 
-				movingCards.put(point, card);
-			}
+	/**
+	 * Outlines the target that a dragged card would be dropped on now. Runs for every movement of
+	 * the mouse, so it only looks the target up, and only moves the outline if the target changed.
+	 */
+	private void showDropTarget(final Card card) {
+		int target = -1;
+		if (!solving) {
+			// An autocomplete may have changed the game since the drag started
+			if (game.zobristHash() != dropTargetsHash) findDropTargets(cards.slotOf(card), cards.indexOf(card));
+			target = dropTargets.find(card.getTranslateX(), card.getTranslateY(), card.getWidth(), card.getHeight());
+		}
+		if (target == dropTarget) return;
 
-			final ObservableValue<Number> xBinding = xBinding(res.destinationSlot, -1);
-			final ObservableValue<Number> yBinding = yBinding(res.destinationSlot, -1);
-			for (final Point pos : movingCards.keySet()) {
-				final Card card = movingCards.get(pos);
-				card.translateXProperty().unbind();
-				card.translateYProperty().unbind();
-				card.toFront();
+		dropTarget = target;
+		dropMarker.setVisible(target >= 0);
+		if (target >= 0) layOutDropMarker();
+	}
 
-				if (activeAnimations.get(card) != null) return;
+	private void hideDropTarget() {
+		dropTarget = -1;
+		dropMarker.setVisible(false);
+	}
 
-				final TranslateTransition anim = new TranslateTransition(new Duration(TRANSLATE_DURATION), card);
-				anim.toXProperty().bind(xBinding);
-				anim.toYProperty().bind(yBinding);
-				move.getChildren().add(anim);
-			}
+	/**
+	 * Moves {@link #dropMarker} to where the cards would land on the shown target.
+	 */
+	private void layOutDropMarker() {
+		dropMarker.setTranslateX(xPosition(dropTargets.slot(dropTarget)));
+		dropMarker.setTranslateY(yPosition(dropTargets.index(dropTarget)));
+	}
 
-			move.setOnFinished(e -> {
-				for (final Point pos : movingCards.keySet()) {
-					final Card card = movingCards.get(pos);
+	private void collectDragons(final int color) {
+		if (solving) return;
 
-					stackPane.getChildren().remove(card);
-					cards.removeValue(card);
-				}
+		final DragonCollectionResult res = game.canCollectDragons(color);
+		if (res == null) return;
 
-				final Card newCard = new Card(game.sideboardCard(res.destinationSlot), cardWidth, this::isDraggable);
-				stackPane.getChildren().add(newCard);
-				cards.put(new Point(res.destinationSlot, -1), newCard);
+		final List<Card> movingCards = new ArrayList<>();
+		for (final int slot : res.slots) {
+			final Card card = cards.get(slot % 8, slot >= 8 ? -1 : game.cardsIn(slot) - 1);
+			if (animator.isAnimating(card)) return;
 
-				newCard.translateXProperty().bind(xBinding);
-				newCard.translateYProperty().bind(yBinding);
+			movingCards.add(card);
+		}
 
-				movingCards.values().forEach(activeAnimations::remove);
-				autocomplete();
-			});
+		hideHint();
+		game.collectDragons(res);
+		buttons[color].setDisable(true);
 
-			movingCards.values().forEach(card -> activeAnimations.put(card, move));
-			move.play();
+		for (final Card card : movingCards) {
+			detach(card);
+			card.toFront();
+			animator.move(card, 0, TRANSLATE_DURATION, res.destinationSlot, -1);
 		}
-	}
 
-	private ObservableValue<Number> xBinding(final int slot, final int index) {
-		return this.xBinding(slot, index, true);
-	}
+		animator.schedule(TRANSLATE_DURATION, () -> {
+			movingCards.forEach(this::releaseCard);
 
-	private ObservableValue<Number> xBinding(final int slot, final int index, final boolean allowRelative) {
-		if (!allowRelative || index < 1) return cardWidth.multiply(slot).add(xOffset);
+			final Card newCard = takeCard(game.sideboardCard(res.destinationSlot));
+			stackPane.getChildren().add(newCard);
+			cards.put(res.destinationSlot, -1, newCard);
+			place(newCard);
 
-		return cards.get(new Point(slot, index - 1)).translateXProperty();
+			autocomplete();
+		});
 	}
 
-	private ObservableValue<Number> yBinding(final int slot, final int index) {
-		return this.yBinding(slot, index, true);
+	/**
+	 * @return the x position of cards in the given slot, following the size of the window. Only
+	 *         depends on the size, so binding to it never forms a chain.
+	 */
+	private ObservableValue<Number> xBinding(final int slot) {
+		return cardWidth.multiply(slot).add(xOffset);
 	}
 
-	private ObservableValue<Number> yBinding(final int slot, final int index, final boolean allowRelative) {
+	/**
+	 * @return the y position of cards at the given index of a main board slot, or in the top board
+	 *         if the index is negative, following the size of the window
+	 */
+	private ObservableValue<Number> yBinding(final int index) {
 		if (index < 0) return new SimpleDoubleProperty(5);
 
-		final int trueIndex = game == null ? 0 : Math.min(game.cardsIn(slot), index);
-		if (!allowRelative || trueIndex == 0) return cardWidth.multiply((trueIndex + 5) * 7D / 25).add(16);
-
-		return cards.get(new Point(slot, index - 1)).translateYProperty().add(cardWidth.multiply(7D / 25));
+		return cardWidth.multiply((index + 5) * 7D / 25).add(16);
 	}
 
 	private void autocomplete() {
@@ -426,92 +568,296 @@ public class Window extends Application {
 		autocompletingId = id;
 
 		for (int color = 0; color < 3; color++) {
-			buttons[color].setDisable(game.canCollectDragons(color) == null);
+			buttons[color].setDisable(solving || !game.canCollect(color));
+		}
+
+		// Make the whole cascade at once, then take back the moves from the first card that is busy
+		// being moved, since the moves after it may depend on it
+		final int mark = game.historySize();
+		final int count = game.settle(settled);
+		int length = 0;
+		while (length < count) {
+			final int offset = length * Game.MOVE_SIZE;
+			final Card card = cards.get(settled[offset], settled[offset + 1]);
+			if (animator.isAnimating(card) || !card.laidOut) break;
+
+			length++;
+		}
+		if (length < count) game.undoTo(mark + length);
+
+		if (length > 0) {
+			for (int m = 0; m < length; m++) {
+				final int offset = m * Game.MOVE_SIZE;
+				final int srcSlot = settled[offset], srcIndex = settled[offset + 1], destSlot = settled[offset + 2];
+				final double start = m * AUTOCOMPLETE_STAGGER;
+
+				final Card card = cards.get(srcSlot, srcIndex);
+				final Card old = cards.put(destSlot, -2, card);
+
+				// Cards wait where they are until they are moved, even if the window is resized
+				detach(card);
+				animator.moveFrom(card, start, TRANSLATE_DURATION, srcSlot, srcIndex, destSlot, -2);
+				animator.schedule(start, card::toFront);
+				animator.schedule(start + TRANSLATE_DURATION, () -> {
+					land(card);
+
+					// A card covered in the completed slots, which has landed by now
+					if (old != null) releaseCard(old);
+				});
+			}
+
+			// Cards that were busy, or moves made while the cascade played, may allow more
+			animator.schedule((length - 1) * AUTOCOMPLETE_STAGGER + TRANSLATE_DURATION, () -> autocomplete(autocompletingId));
+			return;
 		}
 
-		final Set<Integer> moves = game.autoFill();
-		if (!moves.isEmpty()) {
-			Card card = null;
-			for (final Integer move : moves) {
-				if (move < 8) { // Main board
-					card = cards.get(new Point(move, game.cardsIn(move) - 1));
-				} else { // Sideboard
-					card = cards.get(new Point(move % 8, -1));
+		if (game.isWon()) {
+			winGame();
+		} else {
+			requestHint();
+		}
+		autocompletingId = -1;
+	}
+
+	/**
+	 * Starts searching for a hint for the current position in the background, unless there already
+	 * is one for it.
+	 */
+	private void requestHint() {
+		final long hash = game.zobristHash();
+		if (hash == hintHash) {
+			hintButton.setDisable(hint == null);
+			return;
+		}
+
+		hintHash = hash;
+		hint = null;
+		hintButton.setDisable(true);
+		hints.request(game);
+	}
+
+	/**
+	 * Receives a hint from {@link #hints} for the current position.
+	 */
+	private void showHint(final int[] move) {
+		// The position may have changed without the search being cancelled
+		if (game.zobristHash() != hintHash) return;
+
+		hint = move;
+		hintButton.setDisable(move == null);
+	}
+
+	/**
+	 * Highlights the cards moved by the hint, and the card they are moved onto.
+	 */
+	private void highlightHint() {
+		if (hint == null) return;
+
+		for (final Card card : highlighted) {
+			card.setHighlighted(false);
+		}
+		highlighted.clear();
+
+		final int srcSlot = hint[0], srcIndex = hint[1], destSlot = hint[2], destIndex = hint[3];
+		if (srcIndex == Game.COLLECT_DRAGONS) {
+			final DragonCollectionResult res = game.canCollectDragons(srcSlot);
+			if (res == null) return;
+
+			for (final int slot : res.slots) {
+				highlight(cards.get(slot % 8, slot >= 8 ? -1 : game.cardsIn(slot) - 1));
+			}
+			return;
+		}
+
+		if (srcIndex < 0) {
+			highlight(cards.get(srcSlot, -1));
+		} else {
+			for (int i = srcIndex; i < game.cardsIn(srcSlot); i++) {
+				highlight(cards.get(srcSlot, i));
+			}
+		}
+
+		if (destIndex > 0) {
+			highlight(cards.get(destSlot, destIndex - 1));
+		} else if (destIndex == -2) {
+			highlight(cards.get(destSlot, -2));
+		}
+	}
+
+	/**
+	 * Searches for a solution to the current position in the background, then plays it back.
+	 */
+	private void solve() {
+		if (solving || searching || dealing || !animator.isIdle()) return;
+
+		solving = true;
+		searching = true;
+		solveButton.setDisable(true);
+		for (final Button button : buttons) {
+			button.setDisable(true);
+		}
+		hintHash = 0;
+		hideHint();
+
+		if (solver == null) solver = new ParallelSolver();
+
+		final ParallelSolver solver = this.solver;
+		final Game snapshot = new Game(game);
+		final int id = gameId;
+		final Thread thread = new Thread(() -> {
+			final Solution solution = solver.findSolution(snapshot);
+			Platform.runLater(() -> {
+				searching = false;
+
+				// The game may have been restarted in the meantime, which left Solve disabled until
+				// now
+				if (id != gameId || dealing) {
+					solveButton.setDisable(false);
+					return;
 				}
-				if (activeAnimations.get(card) != null || card.isDragging()) {
-					card = null;
-					continue;
+
+				if (solution.isSolved()) {
+					playSolution(solution);
+				} else {
+					solving = false;
+					solveButton.setDisable(false);
+					autocomplete();
 				}
+			});
+		}, "Solve");
+		thread.setDaemon(true);
+		thread.start();
+	}
 
-				game.move(move % 8, move >= 8 ? -1 : game.cardsIn(move) - 1, 0, -2);
-				break;
-			}
+	/**
+	 * Plays back a solution to the current position. Every move is made on the game and in
+	 * {@link #cards} before playback starts, and each move only adds tweens and events for the cards
+	 * it moves at its own time, so playback needs no scheduling between moves.
+	 */
+	private void playSolution(final Solution solution) {
+		for (final Card card : cards.values()) {
+			detach(card);
+		}
 
-			if (card != null) {
-				card.toFront();
-				final int xTarget = card.card == Game.ROSE ? 4 : 5 + (card.card >> 4 & 0b11);
-				final Card old = cards.put(new Point(xTarget, -2), card);
+		// The moves made so far. The solution should always be legal, but if a move cannot be made,
+		// playback stops there, as the game and #cards still agree up to that move.
+		int played = 0;
+		for (int m = 0; m < solution.length(); m++) {
+			final int offset = m * Solution.MOVE_SIZE;
+			final int srcSlot = solution.moves[offset], srcIndex = solution.moves[offset + 1], destSlot = solution.moves[offset + 2], destIndex = solution.moves[offset + 3];
+			final double start = m * SOLVE_MOVE_DURATION;
+
+			final List<Card> moving = new ArrayList<>();
+			final List<Card> removed = new ArrayList<>();
+			Card added = null;
+
+			if (srcIndex == Game.COLLECT_DRAGONS) {
+				final DragonCollectionResult res = game.canCollectDragons(srcSlot);
+				if (res == null) break;
+
+				for (final int slot : res.slots) {
+					final Card card = cards.get(slot % 8, slot >= 8 ? -1 : game.cardsIn(slot) - 1);
+					moving.add(card);
+					animator.move(card, start, SOLVE_MOVE_DURATION, res.destinationSlot, -1);
+				}
+				game.collectDragons(res);
 
-				final TranslateTransition tt = new TranslateTransition(Duration.millis(TRANSLATE_DURATION), card);
-				tt.toXProperty().bind(xBinding(xTarget, -2));
-				tt.toYProperty().bind(yBinding(xTarget, -2));
-				card.translateXProperty().unbind();
-				card.translateYProperty().unbind();
+				moving.forEach(cards::remove);
+				removed.addAll(moving);
 
-				final Card finalCard = card;
-				tt.setOnFinished(event -> {
-					finalCard.translateXProperty().bind(xBinding(xTarget, -2));
-					finalCard.translateYProperty().bind(yBinding(xTarget, -2));
+				added = takeCard(game.sideboardCard(res.destinationSlot));
+				added.setTranslateX(xPosition(res.destinationSlot));
+				added.setTranslateY(yPosition(-1));
+				cards.put(res.destinationSlot, -1, added);
+			} else {
+				final int numCards = srcIndex < 0 ? 1 : game.cardsIn(srcSlot) - srcIndex;
+				for (int n = 0; n < numCards; n++) {
+					moving.add(cards.get(srcSlot, srcIndex < 0 ? -1 : srcIndex + n));
+				}
+				if (!Solution.apply(game, solution.moves, offset)) break;
 
-					if (old != null) stackPane.getChildren().remove(old);
+				for (int n = 0; n < numCards; n++) {
+					final int destRow = destIndex < 0 ? destIndex : destIndex + n;
+					final Card old = cards.put(destSlot, destRow, moving.get(n));
+					if (old != null) removed.add(old); // A card covered in the completed slots
+					animator.move(moving.get(n), start, SOLVE_MOVE_DURATION, destSlot, destRow);
+				}
+			}
 
-					activeAnimations.remove(finalCard);
-					autocomplete(autocompletingId);
+			animator.schedule(start, () -> moving.forEach(Card::toFront));
+			if (!removed.isEmpty() || added != null) {
+				final Card finalAdded = added;
+				animator.schedule(start + SOLVE_MOVE_DURATION, () -> {
+					removed.forEach(this::releaseCard);
+					if (finalAdded != null) stackPane.getChildren().add(finalAdded);
 				});
-				activeAnimations.put(card, tt);
-				tt.play();
-
-				return;
 			}
+			played++;
 		}
 
-		if (game.isWon()) {
-			winGame();
+		animator.schedule(played * SOLVE_MOVE_DURATION, () -> {
+			// Go back to positions that follow the size of the window
+			for (final Card card : cards.values()) {
+				place(card);
+			}
+
+			solving = false;
+			autocomplete();
+		});
+	}
+
+	/**
+	 * @return the current x position of cards in the given slot
+	 */
+	private double xPosition(final int slot) {
+		return cardWidth.doubleValue() * slot + xOffset.doubleValue();
+	}
+
+	/**
+	 * @return the current y position of cards at the given index of a main board slot, or in the
+	 *         top board if the index is negative
+	 */
+	private double yPosition(final int index) {
+		if (index < 0) return 5;
+
+		return cardWidth.doubleValue() * (index + 5) * 7 / 25 + 16;
+	}
+
+	private void highlight(final Card card) {
+		if (card == null) return;
+
+		card.setHighlighted(true);
+		highlighted.add(card);
+	}
+
+	/**
+	 * Removes the highlight of the hint, and disables the hint button until the next hint arrives.
+	 * Called whenever the position is about to change, so it also cancels the search for a hint for
+	 * the current position, whose result would be for a position that no longer exists.
+	 */
+	private void hideHint() {
+		hints.cancel();
+		// A hint that was never found must be searched for again if the position comes back
+		if (hint == null) hintHash = 0;
+
+		for (final Card card : highlighted) {
+			card.setHighlighted(false);
 		}
-		autocompletingId = -1;
+		highlighted.clear();
+		if (hintButton != null) hintButton.setDisable(true);
 	}
 
 	private void winGame() {
 		final List<Card> cards = new ArrayList<>(this.cards.values());
 		Collections.shuffle(cards);
 		for (int i = 0; i < cards.size(); i++) {
-			final Card card = cards.get(i);
-
-			final FadeTransition fade = new FadeTransition(Duration.millis(TRANSLATE_DURATION), card);
-			fade.setFromValue(1);
-			fade.setToValue(0);
-			fade.setDelay(Duration.millis(0.5 * i * TRANSLATE_DURATION));
-			if (i == cards.size() - 1) {
-				fade.setOnFinished(event -> {
-					activeAnimations.remove(card);
-
-					final PauseTransition pause = new PauseTransition(Duration.seconds(2));
-					pause.setOnFinished(e -> {
-						activeAnimations.remove(PLACEHOLDER_CARD);
-						startGame();
-					});
-					activeAnimations.put(PLACEHOLDER_CARD, pause);
-					pause.play();
-				});
-			}
-			activeAnimations.put(card, fade);
-			fade.play();
+			animator.fade(cards.get(i), 0.5 * i * TRANSLATE_DURATION, TRANSLATE_DURATION, 0);
 		}
+		animator.schedule(0.5 * (cards.size() - 1) * TRANSLATE_DURATION + TRANSLATE_DURATION + 2000, this::startGame);
 	}
 
 	private boolean isDraggable(final Card card) {
-		final Point position = cards.getKey(card);
-		return !dealing && activeAnimations.get(card) == null && game.canDrag(position.x, position.y);
+		return !dealing && !solving && cards.contains(card) && !animator.isAnimating(card) && game.canDrag(cards.slotOf(card), cards.indexOf(card));
 	}
 
 	private static Label makePlaceholder(final NumberBinding widthBinding) {